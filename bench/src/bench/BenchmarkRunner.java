@@ -0,0 +1,155 @@
+package bench;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks with the GC profiler (allocation per operation) and compares every result with
+ * a stored baseline, so a change can be judged against the numbers from before it.
+ *
+ * Usage: {@code java bench.BenchmarkRunner [regex]}, e.g. {@code AiBenchmark} or {@code .*checkWin}.
+ * <ul>
+ *   <li>bench.baseline: the baseline file (bench/baseline.csv)</li>
+ *   <li>bench.save: {@code true} to replace the baseline entries of the benchmarks just run</li>
+ * </ul>
+ * Baselines only compare well on the same machine; record a new one before measuring a change.
+ */
+public class BenchmarkRunner {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    private static final String NODES = "nodes";       // Search benchmarks count minimax nodes under this name
+    private static final String HEADER = "# benchmark,score,error,unit,bytesPerOp,nodesPerSecond";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path baselineFile = Path.of(System.getProperty("bench.baseline", "bench/baseline.csv"));
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ".*Benchmark.*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Entry> baseline = load(baselineFile);
+        Map<String, Entry> current = new LinkedHashMap<>();
+        for (RunResult result : results) {
+            Entry entry = Entry.of(result);
+            current.put(entry.name, entry);
+        }
+
+        System.out.println();
+        System.out.printf("%-60s %14s %14s %8s %12s %12s%n", "Benchmark", "Score", "Baseline", "Change", "B/op", "Nodes/s");
+        for (Entry entry : current.values()) {
+            Entry before = baseline.get(entry.name);
+            System.out.printf("%-60s %14.3f %14s %8s %12.1f %12s  %s%n", entry.name, entry.score,
+                    before == null ? "-" : String.format("%.3f", before.score),
+                    before == null ? "" : String.format("%+.1f%%", entry.improvementOver(before)),
+                    entry.bytesPerOp, Double.isNaN(entry.nodesPerSecond) ? "" : String.format("%.0f", entry.nodesPerSecond),
+                    entry.unit);
+        }
+        System.out.println("Change is positive when faster, whether the score is a rate or a time.");
+
+        if (Boolean.getBoolean("bench.save")) {
+            baseline.putAll(current);
+            save(baselineFile, baseline);
+            System.out.println("Baseline saved to " + baselineFile);
+        }
+    }
+
+    private static Map<String, Entry> load(Path file) throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        if (!Files.exists(file)) return entries;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            Entry entry = Entry.parse(line);
+            entries.put(entry.name, entry);
+        }
+        return entries;
+    }
+
+    private static void save(Path file, Map<String, Entry> entries) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        lines.add("# Recorded with " + Runtime.getRuntime().availableProcessors() + " CPUs, "
+                + System.getProperty("os.name") + " " + System.getProperty("os.arch")
+                + ", Java " + System.getProperty("java.version"));
+        for (Entry entry : entries.values()) {
+            lines.add(entry.toLine());
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One benchmark result: the class and method, with parameters, e.g. {@code AiBenchmark.findBestPlacement:position=opening}.
+     */
+    private static class Entry {
+        final String name;
+        final double score;
+        final double error;
+        final String unit;
+        final double bytesPerOp;
+        final double nodesPerSecond;    // NaN for benchmarks that do not search
+
+        Entry(String name, double score, double error, String unit, double bytesPerOp, double nodesPerSecond) {
+            this.name = name;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+            this.bytesPerOp = bytesPerOp;
+            this.nodesPerSecond = nodesPerSecond;
+        }
+
+        static Entry of(RunResult result) {
+            BenchmarkParams params = result.getParams();
+            String benchmark = params.getBenchmark();
+            int method = benchmark.lastIndexOf('.');
+            StringBuilder name = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', method - 1) + 1));
+            for (String key : params.getParamsKeys()) {
+                name.append(':').append(key).append('=').append(params.getParam(key));
+            }
+            Result<?> primary = result.getPrimaryResult();
+            Result<?> allocation = result.getSecondaryResults().get(ALLOCATION);
+            Result<?> nodes = result.getSecondaryResults().get(NODES);
+            return new Entry(name.toString(), primary.getScore(), primary.getScoreError(), primary.getScoreUnit(),
+                    allocation == null ? Double.NaN : allocation.getScore(),
+                    nodes == null ? Double.NaN : nodes.getScore());
+        }
+
+        static Entry parse(String line) {
+            String[] fields = line.split(",");
+            return new Entry(fields[0], Double.parseDouble(fields[1]), Double.parseDouble(fields[2]), fields[3],
+                    Double.parseDouble(fields[4]), Double.parseDouble(fields[5]));
+        }
+
+        String toLine() {
+            return String.format(Locale.ROOT, "%s,%.3f,%.3f,%s,%.1f,%.0f",
+                    name, score, error, unit, bytesPerOp, nodesPerSecond);
+        }
+
+        /**
+         * @return how much faster this result is than {@code before}, in percent
+         */
+        double improvementOver(Entry before) {
+            boolean timePerOp = unit.endsWith("/op");
+            double ratio = timePerOp ? before.score / score : score / before.score;
+            return (ratio - 1) * 100;
+        }
+    }
+}
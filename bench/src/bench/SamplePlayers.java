@@ -0,0 +1,34 @@
+package bench;
+
+import server.db.GameResult;
+import server.model.PlayerStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Player statistics for benchmarks: the same players on every run, with realistic game counts and
+ * ranking values (up to 200 games each, derived fields computed as the server does).
+ */
+public final class SamplePlayers {
+
+    private static final GameResult[] RESULTS = GameResult.values();
+
+    private SamplePlayers() {
+    }
+
+    public static List<PlayerStats> create(int count) {
+        Random random = new Random(42);
+        List<PlayerStats> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PlayerStats player = PlayerStats.newPlayer("player" + i);
+            int games = 1 + random.nextInt(200);
+            for (int game = 0; game < games; game++) {
+                player = player.withResult(RESULTS[random.nextInt(RESULTS.length)]);
+            }
+            players.add(player);
+        }
+        return players;
+    }
+}
@@ -0,0 +1,90 @@
+package client.game;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ComputerAI: the heuristic and the losing-piece test on their own, and whole searches.
+ * Searches also report {@code nodes}, the minimax nodes visited per second, which separates
+ * "each node got cheaper" from "fewer nodes were searched".
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AiBenchmark {
+
+    @Param({Positions.OPENING, Positions.MIDDLEGAME, Positions.ENDGAME})
+    public String position;
+
+    private QuartoGame toPlace;
+    private QuartoGame toChoose;
+    private int pieceToGive;
+
+    /**
+     * Nodes visited, summed over the iteration; JMH reports it as a rate like the primary score.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        toPlace = Positions.toPlace(position);
+        toChoose = Positions.toChoose(position);
+        for (int id = 0; id < 16; id++) {
+            if (toChoose.getAvailablePieces()[id]) {
+                pieceToGive = id;
+                break;
+            }
+        }
+    }
+
+    @Benchmark
+    public double evaluateBoard() {
+        return ComputerAI.evaluateBoard(toChoose);
+    }
+
+    @Benchmark
+    public boolean canOpponentWinWithPiece() {
+        return ComputerAI.canOpponentWinWithPiece(toChoose, pieceToGive);
+    }
+
+    @Benchmark
+    public int[] findBestPlacement(Nodes counter) {
+        SearchStats stats = new SearchStats();
+        int[] square = ComputerAI.findBestPlacement(toPlace, stats);
+        counter.nodes += stats.getNodes();
+        return square;
+    }
+
+    @Benchmark
+    public int chooseBestPieceForOpponent(Nodes counter) {
+        SearchStats stats = new SearchStats();
+        int piece = ComputerAI.chooseBestPieceForOpponent(toChoose, stats);
+        counter.nodes += stats.getNodes();
+        return piece;
+    }
+}
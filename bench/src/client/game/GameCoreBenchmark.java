@@ -0,0 +1,59 @@
+package client.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The game-state operations the AI repeats at every node: win checks, placing a piece and copying a game.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameCoreBenchmark {
+
+    @Param({Positions.OPENING, Positions.MIDDLEGAME, Positions.ENDGAME})
+    public String position;
+
+    private QuartoGame game;
+    private int[][] intBoard;
+    private int[] square;
+
+    @Setup
+    public void setUp() {
+        game = Positions.toPlace(position);
+        intBoard = game.getIntBoard();
+        square = Positions.nextSquare(position);
+    }
+
+    @Benchmark
+    public boolean checkWin() {
+        return WinChecker.checkWin(intBoard);
+    }
+
+    /**
+     * Includes the copy, since placing changes the game; {@link #copy} gives its share.
+     */
+    @Benchmark
+    public boolean placeCurrentPiece() {
+        return game.copy().placeCurrentPiece(square[0], square[1]);
+    }
+
+    @Benchmark
+    public QuartoGame copy() {
+        return game.copy();
+    }
+}
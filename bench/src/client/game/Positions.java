@@ -0,0 +1,72 @@
+package client.game;
+
+/**
+ * Fixed positions the benchmarks run on, so results are comparable between runs and machines.
+ * All come from one game that nobody wins along the way, cut at three points:
+ * <ul>
+ *   <li>opening: 4 pieces placed, where a search is most expensive</li>
+ *   <li>middlegame: 6 pieces placed</li>
+ *   <li>endgame: 8 pieces placed, the piece in hand cannot win at once</li>
+ * </ul>
+ * An earlier opening is left out on purpose: a single search there takes seconds.
+ */
+final class Positions {
+
+    static final String OPENING = "opening";
+    static final String MIDDLEGAME = "middlegame";
+    static final String ENDGAME = "endgame";
+
+    // {pieceId, row, col} in the order played
+    private static final int[][] MOVES = {
+            {0, 0, 0}, {15, 1, 1}, {5, 2, 3}, {10, 0, 2}, {3, 3, 1}, {12, 1, 3},
+            {6, 2, 0}, {9, 3, 2}, {1, 0, 1}, {14, 2, 2}, {7, 3, 3}, {8, 1, 0},
+    };
+
+    private Positions() {
+    }
+
+    /**
+     * @return the position with the next piece in hand, ready for {@link ComputerAI#findBestPlacement}
+     */
+    static QuartoGame toPlace(String name) {
+        int placed = placedIn(name);
+        QuartoGame game = play(placed);
+        game.setCurrentPiece(MOVES[placed][0]);
+        return game;
+    }
+
+    /**
+     * @return the position right after that piece was placed, ready for {@link ComputerAI#chooseBestPieceForOpponent}
+     */
+    static QuartoGame toChoose(String name) {
+        return play(placedIn(name) + 1);
+    }
+
+    /**
+     * @return the square the game went on to use for the piece in hand, an empty one in {@link #toPlace}
+     */
+    static int[] nextSquare(String name) {
+        int[] move = MOVES[placedIn(name)];
+        return new int[]{move[1], move[2]};
+    }
+
+    private static int placedIn(String name) {
+        switch (name) {
+            case OPENING: return 4;
+            case MIDDLEGAME: return 6;
+            case ENDGAME: return 8;
+            default: throw new IllegalArgumentException("Unknown position: " + name);
+        }
+    }
+
+    private static QuartoGame play(int count) {
+        QuartoGame game = new QuartoGame();
+        for (int i = 0; i < count; i++) {
+            game.setCurrentPiece(MOVES[i][0]);
+            if (game.placeCurrentPiece(MOVES[i][1], MOVES[i][2])) {
+                throw new IllegalStateException("Benchmark position already won at move " + i);
+            }
+        }
+        return game;
+    }
+}
@@ -0,0 +1,78 @@
+package client.models;
+
+import bench.SamplePlayers;
+import common.protocol.BinaryCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.model.PlayerStats;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The client side of the statistics responses: from the received data to Player rows, for a
+ * full getAllPlayers list (text and binary), one leaderboard page and one change set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatisticsParsingBenchmark {
+
+    @Param({"50", "1000"})
+    public int rows;
+
+    private String allPlayers;
+    private byte[] allPlayersPayload;
+    private String page;
+    private String changes;
+
+    @Setup
+    public void setUp() {
+        List<PlayerStats> players = SamplePlayers.create(rows);
+        StringBuilder builder = new StringBuilder();
+        for (PlayerStats player : players) {
+            player.appendWire(builder);
+        }
+        allPlayers = builder.toString();
+        BinaryCodec.PlayersEncoder encoder = new BinaryCodec.PlayersEncoder();
+        for (PlayerStats player : players) {
+            encoder.add(player.username(), player.winPercentage(), player.gamesPlayed(),
+                    player.ranking(), player.wins(), player.draws(), player.losses());
+        }
+        allPlayersPayload = encoder.toPayload();
+        page = "12 1 " + (rows * 10) + " player" + rows + " " + allPlayers;
+        changes = "3 1042 delta " + allPlayers;
+    }
+
+    @Benchmark
+    public List<Player> allPlayersText() {
+        return LeaderboardCache.parseRows(allPlayers);
+    }
+
+    @Benchmark
+    public List<Player> allPlayersBinary() {
+        return LeaderboardCache.parseRows(BinaryCodec.decodePlayers(allPlayersPayload));
+    }
+
+    @Benchmark
+    public List<Player> leaderboardPage() {
+        return LeaderboardCache.parseRows(LeaderboardPage.parse(page).getRows());
+    }
+
+    @Benchmark
+    public List<Player> leaderboardChanges() {
+        return LeaderboardCache.parseRows(LeaderboardChanges.parse(changes).getRows());
+    }
+}
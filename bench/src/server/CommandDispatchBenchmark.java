@@ -0,0 +1,90 @@
+package server;
+
+import bench.SamplePlayers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handling of single received lines by ClientHandler, on the benchmark thread: the byte-level relay
+ * path for moves and the text dispatch for everything else. Replies really go out through the
+ * connection's outbound queue and are discarded by the client end.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dquarto.log.file=", "-Dquarto.log.level=WARN",
+        // Replies are produced faster than one core can also write them; never drop the connection
+        "-Dquarto.net.outboundHardLimitBytes=1073741824"})
+@State(Scope.Thread)
+public class CommandDispatchBenchmark {
+
+    private static final byte[] MOVE_PLACE = "movePlace 1 2".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MALFORMED_MOVE = "movePlace 1 x".getBytes(StandardCharsets.UTF_8);
+    private static final int PLAYERS = 1000;
+
+    private ServerSocket server;
+    private LoopbackConnection connection;
+
+    @Setup
+    public void setUp() throws IOException {
+        TCPServer.leaderboard.load(SamplePlayers.create(PLAYERS), 0);
+        server = LoopbackConnection.listen();
+        connection = LoopbackConnection.open(server);
+        connection.discardReplies();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        connection.close();
+        server.close();
+    }
+
+    /**
+     * A well-formed move outside a game: parsed in place and dispatched through the command table.
+     */
+    @Benchmark
+    public boolean relayMovePlace() {
+        return connection.handler.relay(MOVE_PLACE, MOVE_PLACE.length);
+    }
+
+    /**
+     * A malformed move, rejected by the relay path and decoded to text for processCommand.
+     */
+    @Benchmark
+    public void malformedMoveFallback() {
+        if (!connection.handler.relay(MALFORMED_MOVE, MALFORMED_MOVE.length)) {
+            connection.handler.processCommand(new String(MALFORMED_MOVE, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public void leaderboardTop() {
+        connection.handler.processCommand("leaderboardTop 10");
+    }
+
+    @Benchmark
+    public void taggedLeaderboardTop() {
+        connection.handler.processCommand("@17 leaderboardTop 10");
+    }
+
+    @Benchmark
+    public void unknownCommand() {
+        connection.handler.processCommand("noSuchCommand a b");
+    }
+}
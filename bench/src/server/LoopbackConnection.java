@@ -0,0 +1,68 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * A real server-side ClientHandler on a loopback socket, without starting TCPServer, MySQL or the
+ * result journal. The benchmark holds the client end of the socket.
+ */
+final class LoopbackConnection implements Closeable {
+
+    final Socket client;
+    final TCPServer.ClientHandler handler;
+
+    private LoopbackConnection(Socket client, TCPServer.ClientHandler handler) {
+        this.client = client;
+        this.handler = handler;
+    }
+
+    static LoopbackConnection open(ServerSocket server) throws IOException {
+        Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        client.setTcpNoDelay(true);
+        Socket accepted = server.accept();
+        accepted.setTcpNoDelay(true);
+        return new LoopbackConnection(client, new TCPServer.ClientHandler(accepted));
+    }
+
+    static ServerSocket listen() throws IOException {
+        return new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Runs the handler's read loop, as the server does for every connection.
+     */
+    void startHandler() {
+        Thread thread = new Thread(handler, "handler-" + client.getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reads and drops everything the server sends, so its outbound queue never backs up.
+     */
+    void discardReplies() {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[64 * 1024];
+            try {
+                InputStream in = client.getInputStream();
+                while (in.read(buffer) >= 0) {
+                    // Discard
+                }
+            } catch (IOException ignored) {
+                // Closed at the end of the benchmark
+            }
+        }, "discard-" + client.getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+}
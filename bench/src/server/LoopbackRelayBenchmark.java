@@ -0,0 +1,128 @@
+package server;
+
+import common.protocol.BinaryCodec;
+import common.protocol.Frame;
+import common.protocol.FrameReader;
+import common.protocol.Handshake;
+import common.protocol.WireFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One movePlace from player A to player B through two real ClientHandlers in a game: A's socket,
+ * A's read loop and relay, the session, B's outbound queue and writer, and B's socket. Each operation
+ * sends one move and waits until B has read it, so the score is the latency of a single relay
+ * (the mean; the percentiles are in the JMH output).
+ * The GC profiler's bytes per operation cover the server threads as well as the benchmark thread.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dquarto.log.file=", "-Dquarto.log.level=WARN"})
+@State(Scope.Thread)
+public class LoopbackRelayBenchmark {
+
+    @Param({"text", "binary"})
+    public String protocol;
+
+    private ServerSocket server;
+    private LoopbackConnection playerA;
+    private LoopbackConnection playerB;
+    private OutputStream toServer;
+    private FrameReader fromServer;
+    private byte[] move;
+    private boolean binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        binary = WireFormat.fromName(protocol) == WireFormat.BINARY;
+        server = LoopbackConnection.listen();
+        playerA = LoopbackConnection.open(server);
+        playerB = LoopbackConnection.open(server);
+        playerA.startHandler();
+        playerB.startHandler();
+
+        toServer = playerA.client.getOutputStream();
+        OutputStream toServerB = playerB.client.getOutputStream();
+        FrameReader fromServerA = new FrameReader(new BufferedInputStream(playerA.client.getInputStream()));
+        fromServer = new FrameReader(new BufferedInputStream(playerB.client.getInputStream()));
+        if (binary) {
+            handshake(toServer, fromServerA);
+            handshake(toServerB, fromServer);
+        }
+
+        // No usernames, so the game is not recorded in the history when the benchmark disconnects
+        sendLine(toServer, "startOnlineGame");
+        awaitLine(fromServerA, "startOnlineGameWait");
+        sendLine(toServerB, "startOnlineGame");
+        awaitLine(fromServer, "startOnlineGame");
+        awaitLine(fromServerA, "startOnlineGame");
+        // B keeps reading its socket in the benchmark; drop whatever else reaches A
+        playerA.discardReplies();
+
+        move = binary ? BinaryCodec.movePlaceFrame(1, 2) : "movePlace 1 2\n".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        playerA.close();
+        playerB.close();
+        server.close();
+    }
+
+    @Benchmark
+    public int relayMovePlace() throws IOException {
+        toServer.write(move);
+        toServer.flush();
+        if (binary) {
+            Frame frame = fromServer.readFrame();
+            return frame.getOpcode();
+        }
+        return fromServer.readLineBytes();
+    }
+
+    private void handshake(OutputStream out, FrameReader in) throws IOException {
+        // The offer itself is still a text line; the server switches after answering
+        out.write((new Handshake(Handshake.VERSION_CURRENT, WireFormat.BINARY).toLine() + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        Handshake answer = Handshake.parse(in.readLine());
+        if (answer == null || answer.getFormat() != WireFormat.BINARY) {
+            throw new IllegalStateException("Server did not agree to the binary protocol");
+        }
+    }
+
+    private void sendLine(OutputStream out, String line) throws IOException {
+        byte[] bytes = binary ? BinaryCodec.encodeLine(line) : (line + "\n").getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        out.flush();
+    }
+
+    /**
+     * Reads messages until one starts with the given prefix.
+     */
+    private void awaitLine(FrameReader in, String prefix) throws IOException {
+        while (true) {
+            String line = binary ? BinaryCodec.toLine(in.readFrame()) : in.readLine();
+            if (line == null) throw new IOException("Connection closed while waiting for " + prefix);
+            if (line.startsWith(prefix)) return;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package server;
+
+import bench.SamplePlayers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.model.PlayerStats;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The getAllPlayers response, built by the same code the server uses, for the text and binary protocols.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dquarto.log.file=", "-Dquarto.log.level=WARN"})
+@State(Scope.Thread)
+public class PlayersEncodingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int players;
+
+    private List<PlayerStats> snapshot;
+
+    @Setup
+    public void setUp() {
+        snapshot = SamplePlayers.create(players);
+    }
+
+    @Benchmark
+    public String textLine() {
+        return TCPServer.ClientHandler.playersLine(snapshot);
+    }
+
+    @Benchmark
+    public byte[] binaryPayload() {
+        return TCPServer.ClientHandler.encodePlayers(snapshot);
+    }
+}
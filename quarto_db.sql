@@ -13,5 +13,33 @@ CREATE TABLE IF NOT EXISTS players (
     draws INT DEFAULT 0,
     losses INT DEFAULT 0,
     win_percentage DOUBLE DEFAULT 0.0,
-    ranking DOUBLE DEFAULT 0.0
+    ranking DOUBLE DEFAULT 0.0,
+    INDEX idx_players_ranking (ranking DESC, username)
+);
+
+-- Existing databases: add the leaderboard index
+-- ALTER TABLE players ADD INDEX idx_players_ranking (ranking DESC, username);
+
+-- Last game result from the server's result journal that has been applied to players
+CREATE TABLE IF NOT EXISTS journal_checkpoint (
+    id TINYINT PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+);
+
+-- Finished games. Players are stored in name order (player_a < player_b) so head-to-head
+-- lookups hit one index whichever way round they are asked.
+-- result: 0 draw, 1 player_a won, 2 player_b won, 3 abandoned
+-- moves: compact move list, one nibble per move (at most 17 bytes)
+CREATE TABLE IF NOT EXISTS games (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    player_a VARCHAR(50) NOT NULL,
+    player_b VARCHAR(50) NOT NULL,
+    result TINYINT NOT NULL,
+    a_started BOOLEAN NOT NULL,
+    started_at TIMESTAMP(3) NOT NULL,
+    ended_at TIMESTAMP(3) NOT NULL,
+    moves VARBINARY(17) NOT NULL,
+    INDEX idx_games_player_a (player_a, id),
+    INDEX idx_games_player_b (player_b, id),
+    INDEX idx_games_head_to_head (player_a, player_b, id)
 );
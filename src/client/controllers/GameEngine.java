@@ -478,6 +478,17 @@ public class GameEngine implements GameSessionListener {
         });
     }
 
+    /**
+     * Called when the opponent disconnects mid-game (online).
+     */
+    @Override
+    public void opponentLeft() {
+        Platform.runLater(() -> {
+            setOpponentDisconnected(true);
+            opponentQuitAndYouWon();
+        });
+    }
+
     /**
      * Called when the opponent quits the game. Shows win message and updates stats.
      */
@@ -4,6 +4,8 @@ import client.network.TCPClient;
 import client.network.ConnectionManager;
 import client.utils.FXMLLoaderUtils;
 import client.utils.GameUIUtils;
+import common.protocol.LoginResult;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.TextField;
@@ -20,34 +22,59 @@ public class LoginController {
     @FXML
     private TextField passwordField;
 
+    private boolean loginInProgress = false;
+
     /**
      * Handles login button click.
      * Performs either registration or password validation, then transitions to main menu.
+     * All network calls run asynchronously; the result is applied on the JavaFX thread.
      */
     @FXML
     public void handleLogin() {
         String username = usernameField.getText();
+        String password = passwordField.getText();
 
         if (username == null || username.trim().isEmpty()) {
             GameUIUtils.showAlert("Login Error", "Username cannot be empty.");
             return;
         }
+        if (loginInProgress) return; // Ignore repeated clicks while a login is running
+        loginInProgress = true;
 
-        TCPClient client = new TCPClient(username);
-
-        if (!client.isNameExistInDB(username)) { // New user: register
-            client.registerUser(username, passwordField.getText());
-        } else { // Existing user: validate password
-            String password = passwordField.getText();
-            if (!client.isPasswordCorrect(password)) {
-                GameUIUtils.showAlert("Login Error", "Incorrect password. Please try again.");
-                try {
-                    client.close(); // Close connection on failure
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+        TCPClient.connectAsync(username).whenComplete((client, connectError) -> {
+            if (connectError != null) {
+                Platform.runLater(() -> {
+                    loginInProgress = false;
+                    GameUIUtils.showAlert("Login Error", "Could not connect to the server.");
+                });
                 return;
             }
+            // One request both registers new users and validates existing ones
+            client.loginAsync(username, password).whenComplete((result, error) -> Platform.runLater(() -> {
+                loginInProgress = false;
+                if (error != null) {
+                    closeQuietly(client);
+                    GameUIUtils.showAlert("Login Error", "The server did not respond. Please try again.");
+                } else {
+                    onLoginResult(client, username, result);
+                }
+            }));
+        });
+    }
+
+    /**
+     * Applies the login result on the JavaFX thread.
+     */
+    private void onLoginResult(TCPClient client, String username, LoginResult result) {
+        if (result == LoginResult.WRONG_PASSWORD) {
+            GameUIUtils.showAlert("Login Error", "Incorrect password. Please try again.");
+            closeQuietly(client); // Close connection on failure
+            return;
+        }
+        if (!result.isAuthenticated()) {
+            GameUIUtils.showAlert("Login Error", "Login failed on the server. Please try again later.");
+            closeQuietly(client);
+            return;
         }
 
         // Save client globally and switch to main menu
@@ -60,4 +87,12 @@ public class LoginController {
             GameUIUtils.showAlert("Error", "Failed to load main menu.");
         }
     }
+
+    private void closeQuietly(TCPClient client) {
+        try {
+            client.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 }
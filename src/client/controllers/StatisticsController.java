@@ -1,24 +1,34 @@
 package client.controllers;
 
+import client.models.LeaderboardCache;
+import client.models.LeaderboardChanges;
+import client.models.LeaderboardPage;
 import client.models.Player;
 import client.network.ConnectionManager;
+import client.network.ServerErrorException;
 import client.network.TCPClient;
 import client.utils.FXMLLoaderUtils;
+import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyObjectWrapper;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import java.io.IOException;
+import java.util.concurrent.CompletionException;
 
 /**
  * Controller class for the statistics screen.
- * Displays player statistics in a JavaFX table.
+ * Displays player statistics in a JavaFX table, fetched from the server one page at a time
+ * and kept in a {@link LeaderboardCache} that is only patched with changes on later visits.
+ * While the screen is open the server pushes changes as they happen.
  */
 public class StatisticsController {
+    private static final int PAGE_SIZE = 50;
+
     @FXML private TableView<Player> statsTable;
     @FXML private TableColumn<Player, String> usernameColumn;
     @FXML private TableColumn<Player, String> winPercColumn;
@@ -28,6 +38,10 @@ public class StatisticsController {
     @FXML private TableColumn<Player, Integer> drawsColumn;
     @FXML private TableColumn<Player, Integer> lossesColumn;
 
+    private final LeaderboardCache cache = ConnectionManager.getLeaderboardCache();
+    private boolean pageLoading = false;    // Only touched on the JavaFX thread
+    private boolean subscribed = false;     // Only servers that version the leaderboard can push changes
+
     /**
      * Called automatically when the FXML is loaded.
      * Initializes the table, configures columns, loads data from server.
@@ -64,55 +78,142 @@ public class StatisticsController {
         // Apply external CSS styling
         statsTable.getStylesheets().add(getClass().getResource("/client/view/style.css").toExternalForm());
 
-        // Load data from the server in background
+        // Show the cached rows straight away; syncing patches them in place
+        statsTable.setItems(cache.getPlayers());
+
+        // Fetch the next page when the user scrolls to the bottom of the table
+        statsTable.skinProperty().addListener((obs, oldSkin, newSkin) -> Platform.runLater(this::watchScrolling));
+
+        // Load data from the server asynchronously
         loadDataFromServer();
     }
 
     /**
-     * Loads player statistics from the server in a background thread.
-     * Parses the response into Player objects and fills the table.
+     * Brings the cached statistics up to date with the server asynchronously: only the players that
+     * changed since the last visit are fetched, and the first page is loaded if the cache is empty.
      */
     private void loadDataFromServer() {
-        Task<ObservableList<Player>> task = new Task<>() {
-            @Override
-            protected ObservableList<Player> call() {
-                TCPClient client = ConnectionManager.getTcpClient();
-                ObservableList<Player> players = FXCollections.observableArrayList();
-
-                if (client == null) {
-                    System.err.println("⚠ Cannot load statistics: TCPClient is null");
-                    return players; // Return empty list instead of throwing an error
+        TCPClient client = ConnectionManager.getTcpClient();
+        if (client == null) {
+            System.err.println("⚠ Cannot load statistics: TCPClient is null");
+            return; // Leave the table empty instead of throwing an error
+        }
+
+        pageLoading = true;
+        client.getLeaderboardChangesAsync(cache.getEpoch(), cache.getVersion()).whenComplete((changes, error) -> {
+            if (error != null && !isUnknownCommand(error)) {
+                System.err.println("⚠ Failed to load statistics: " + error.getMessage());
+                Platform.runLater(() -> pageLoading = false);
+                return;
+            }
+            Platform.runLater(() -> {
+                if (changes != null) {
+                    cache.applyChanges(changes);
+                    subscribe(client);
+                } else {
+                    cache.clear();      // Server without versioning; reload every time
+                }
+                if (cache.isEmpty()) {
+                    loadFirstPage(client);
+                } else {
+                    pageLoading = false;
                 }
+            });
+        });
+    }
+
+    /**
+     * Has the server push changes from the cached version on while this screen is open.
+     */
+    private void subscribe(TCPClient client) {
+        subscribed = true;
+        client.setLeaderboardListener(changes -> Platform.runLater(() -> applyUpdate(client, changes)));
+        client.subscribeLeaderboardAsync(cache.getEpoch(), cache.getVersion()).exceptionally(error -> {
+            System.err.println("⚠ Live statistics unavailable: " + error.getMessage());
+            return null;
+        });
+    }
 
-                String response = client.getPlayersData();
-                if (response != null && !response.trim().isEmpty()) {
-                    String[] entries = response.split(";");
-                    for (String entry : entries) {
-                        String[] parts = entry.split(",");
-                        if (parts.length == 7) {
-                            try {
-                                String username = parts[0].trim();
-                                double winPerc = Double.parseDouble(parts[1].trim());
-                                int gamesPlayed = Integer.parseInt(parts[2].trim());
-                                double ranking = Double.parseDouble(parts[3].trim());
-                                int wins = Integer.parseInt(parts[4].trim());
-                                int draws = Integer.parseInt(parts[5].trim());
-                                int losses = Integer.parseInt(parts[6].trim());
-
-                                players.add(new Player(username, winPerc, gamesPlayed, ranking, wins, draws, losses));
-                            } catch (NumberFormatException e) {
-                                System.err.println("⚠ Invalid player data: " + entry);
-                            }
-                        }
+    private void applyUpdate(TCPClient client, LeaderboardChanges changes) {
+        if (cache.applyChanges(changes)) {
+            pageLoading = true;
+            loadFirstPage(client);      // Fell too far behind; start again from the top
+        }
+    }
+
+    /**
+     * Loads the first page of player statistics.
+     * Falls back to the whole table for servers without leaderboard paging.
+     */
+    private void loadFirstPage(TCPClient client) {
+        client.getLeaderboardTopAsync(PAGE_SIZE).whenComplete((page, error) -> {
+            if (error == null) {
+                Platform.runLater(() -> addPage(page));
+            } else if (isUnknownCommand(error)) {
+                loadAllPlayers(client);
+            } else {
+                System.err.println("⚠ Failed to load statistics: " + error.getMessage());
+                Platform.runLater(() -> pageLoading = false);
+            }
+        });
+    }
+
+    /**
+     * Loads the page following the rows already shown, if there is one.
+     */
+    private void loadNextPage() {
+        TCPClient client = ConnectionManager.getTcpClient();
+        String nextCursor = cache.getNextCursor();
+        if (client == null || nextCursor == null || pageLoading) return;
+
+        pageLoading = true;
+        client.getLeaderboardPageAsync(nextCursor, PAGE_SIZE).whenComplete((page, error) -> {
+            if (error != null) {
+                System.err.println("⚠ Failed to load statistics: " + error.getMessage());
+                Platform.runLater(() -> pageLoading = false);
+                return;
+            }
+            Platform.runLater(() -> addPage(page));
+        });
+    }
+
+    private void addPage(LeaderboardPage page) {
+        cache.addPage(page.getRows(), page.hasMore());
+        pageLoading = false;
+    }
+
+    /**
+     * Loads the whole table in one request (servers that predate leaderboard paging).
+     */
+    private void loadAllPlayers(TCPClient client) {
+        client.getPlayersDataAsync().whenComplete((all, error) -> {
+            if (error != null) {
+                System.err.println("⚠ Failed to load statistics: " + error.getMessage());
+                Platform.runLater(() -> pageLoading = false);
+                return;
+            }
+            Platform.runLater(() -> {
+                cache.addPage(all, false);
+                pageLoading = false;
+            });
+        });
+    }
+
+    private void watchScrolling() {
+        for (Node node : statsTable.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    if (newValue.doubleValue() >= bar.getMax()) {
+                        loadNextPage();
                     }
-                }
-                return players;
+                });
             }
-        };
+        }
+    }
 
-        task.setOnSucceeded(e -> statsTable.setItems(task.getValue()));
-        task.setOnFailed(e -> task.getException().printStackTrace());
-        new Thread(task).start();
+    private static boolean isUnknownCommand(Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        return cause instanceof ServerErrorException serverError && serverError.isUnknownCommand();
     }
 
     /**
@@ -120,6 +221,11 @@ public class StatisticsController {
      */
     @FXML
     private void exitScreen(ActionEvent event) {
+        TCPClient client = ConnectionManager.getTcpClient();
+        if (client != null && subscribed) {
+            client.setLeaderboardListener(null);
+            client.unsubscribeLeaderboard();
+        }
         try {
             FXMLLoaderUtils.switchScene(event, "/client/view/fxml/MainController.fxml");
         } catch (IOException e) {
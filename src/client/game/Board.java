@@ -26,6 +26,15 @@ public class Board {
         grid[row][col] = piece;
     }
 
+    /**
+     * Removes and returns the piece at the given cell, or null if it is empty.
+     */
+    public Piece removePiece(int row, int col) {
+        Piece piece = grid[row][col];
+        grid[row][col] = null;
+        return piece;
+    }
+
     /**
      * Returns the internal grid.
      */
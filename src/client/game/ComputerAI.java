@@ -6,14 +6,14 @@ import java.util.List;
 
 /**
  * Simple AI for Quarto using fixed-depth Minimax with Alpha-Beta Pruning.
- * Looks ahead 3 full moves (AI Place+Choose -> Opp Place+Choose -> AI Place+Choose -> Evaluate).
+ * Looks ahead 3 full moves by default (AI Place+Choose -> Opp Place+Choose -> AI Place+Choose -> Evaluate).
  */
 public class ComputerAI {
 
     // --- Constants ---
     private static final double WIN_SCORE = 10000.0; // Score for winning
     private static final double LOSE_SCORE = -10000.0; // Score for losing
-    private static final int SEARCH_DEPTH = 3;       // Fixed lookahead depth (3 full turns)
+    public static final int SEARCH_DEPTH = 3;        // Default lookahead depth (3 full turns)
     // Simple Heuristic weights
     private static final double THREE_IN_LINE_WEIGHT = 50.0; // High reward for threats
     private static final double TWO_IN_LINE_WEIGHT = 5.0;
@@ -43,8 +43,23 @@ public class ComputerAI {
      * @return An array {row, col} representing the best placement.
      */
     public static int[] findBestPlacement(QuartoGame game) {
+        return findBestPlacement(game, new SearchStats());
+    }
+
+    /**
+     * Same as {@link #findBestPlacement(QuartoGame)}, counting the work done into {@code stats}.
+     */
+    public static int[] findBestPlacement(QuartoGame game, SearchStats stats) {
+        return findBestPlacement(game, SEARCH_DEPTH, stats);
+    }
+
+    /**
+     * Same as {@link #findBestPlacement(QuartoGame, SearchStats)}, looking ahead {@code depth} full moves instead.
+     */
+    public static int[] findBestPlacement(QuartoGame game, int depth, SearchStats stats) {
+        if (depth < 1) throw new IllegalArgumentException("Search depth must be at least 1");
         // Start minimax for the placement phase of the AI's turn (maximizing player)
-        Move bestMove = minimax(game, SEARCH_DEPTH, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true, true);
+        Move bestMove = minimax(game, depth, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true, true, stats);
 
         if (bestMove == null || bestMove.row == -1) {
             System.err.println("AI Simple Warning: No valid placement found, choosing random.");
@@ -59,9 +74,24 @@ public class ComputerAI {
      * @return The ID (0-15) of the piece to give to the opponent.
      */
     public static int chooseBestPieceForOpponent(QuartoGame game) {
+        return chooseBestPieceForOpponent(game, new SearchStats());
+    }
+
+    /**
+     * Same as {@link #chooseBestPieceForOpponent(QuartoGame)}, counting the work done into {@code stats}.
+     */
+    public static int chooseBestPieceForOpponent(QuartoGame game, SearchStats stats) {
+        return chooseBestPieceForOpponent(game, SEARCH_DEPTH, stats);
+    }
+
+    /**
+     * Same as {@link #chooseBestPieceForOpponent(QuartoGame, SearchStats)}, looking ahead {@code depth} full moves instead.
+     */
+    public static int chooseBestPieceForOpponent(QuartoGame game, int depth, SearchStats stats) {
+        if (depth < 1) throw new IllegalArgumentException("Search depth must be at least 1");
         // Start minimax for the choice phase of the AI's turn (still maximizing overall)
         // The recursive calls will handle the opponent minimizing.
-        Move bestChoice = minimax(game, SEARCH_DEPTH, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true, false); // Note: Still depth 3, phase is choice
+        Move bestChoice = minimax(game, depth, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true, false, stats); // Note: Same depth, phase is choice
 
         if (bestChoice == null || bestChoice.pieceToGive == -1) {
             System.err.println("AI Simple Warning: No valid piece found to give, choosing random.");
@@ -92,13 +122,18 @@ public class ComputerAI {
      *
      * @param game The current game state.
      * @param depth Remaining search depth (full turns).
+     * @param ply Actions taken since the root of the search, for the statistics.
      * @param alpha Best score found so far for the maximizing player.
      * @param beta Best score found so far for the minimizing player.
      * @param isMaxPlayer True if the current turn is for the AI (maximizing player).
      * @param isPlacementPhase True if the current action is placing a piece. False if choosing a piece.
+     * @param stats Counts the nodes visited, cutoffs and pruning.
      * @return The best Move (score, and relevant action details) found from this state.
      */
-    private static Move minimax(QuartoGame game, int depth, double alpha, double beta, boolean isMaxPlayer, boolean isPlacementPhase) {
+    private static Move minimax(QuartoGame game, int depth, int ply, double alpha, double beta, boolean isMaxPlayer, boolean isPlacementPhase,
+                                SearchStats stats) {
+        stats.nodes++;
+        stats.nodesAtPly[ply]++;
 
         // --- Base Cases ---
         // 1. Check if previous move won
@@ -116,6 +151,7 @@ public class ComputerAI {
 
         // 3. Depth limit reached
         if (depth == 0) {
+            stats.evaluations++;
             return new Move(evaluateBoard(game));
         }
 
@@ -126,6 +162,7 @@ public class ComputerAI {
             // --- Placing the piece ---
             int pieceIdToPlace = game.getCurrentPiece();
             if (pieceIdToPlace == -1) { // Should be caught by draw check, but safety first
+                stats.evaluations++;
                 return new Move(evaluateBoard(game));
             }
 
@@ -134,10 +171,13 @@ public class ComputerAI {
             if(possiblePlacements.isEmpty()) return new Move(0.0); // Board full draw
 
             // Check immediate wins first (simple optimization)
+            stats.winScans++;
             for (int[] placement : possiblePlacements) {
                 QuartoGame quickSim = game.copy();
+                stats.winScanPlacements++;
                 try {
                     if (quickSim.placeCurrentPiece(placement[0], placement[1])) {
+                        stats.winScanHits++;
                         double score = (isMaxPlayer ? WIN_SCORE : LOSE_SCORE);
                         // System.out.println("Depth " + depth + ": Immediate win found at ("+placement[0]+","+placement[1]+")");
                         return new Move(placement[0], placement[1], -1, score); // Found best move
@@ -154,7 +194,7 @@ public class ComputerAI {
                     simGame.placeCurrentPiece(r, c); // Place (we know it's not a win from above)
 
                     // Recurse to the piece choice phase (same player, same depth level)
-                    Move resultFromChoice = minimax(simGame, depth, alpha, beta, isMaxPlayer, false);
+                    Move resultFromChoice = minimax(simGame, depth, ply + 1, alpha, beta, isMaxPlayer, false, stats);
 
                     if (resultFromChoice == null) continue; // Should not happen normally
 
@@ -178,6 +218,7 @@ public class ComputerAI {
 
                     // Alpha-Beta Pruning
                     if (beta <= alpha) {
+                        stats.cutoffsAtPly[ply]++;
                         break; // Prune remaining placements
                     }
                 } catch (Exception e) { System.err.println("AI Simple Error P: " + e); }
@@ -202,8 +243,10 @@ public class ComputerAI {
             // Simple move ordering: Check losing pieces last
             List<Integer> safePieces = new ArrayList<>();
             List<Integer> losingPieces = new ArrayList<>();
+            stats.piecesChecked += availablePieces.size();
             for(int pieceId : availablePieces){
                 if(canOpponentWinWithPiece(game, pieceId)){
+                    stats.losingPieces++;
                     losingPieces.add(pieceId);
                 } else {
                     safePieces.add(pieceId);
@@ -222,15 +265,17 @@ public class ComputerAI {
                     // Assign penalty, don't recurse further down this obviously bad path unless forced
                     currentScore = isMaxPlayer ? GIVING_WINNING_PIECE_PENALTY : -GIVING_WINNING_PIECE_PENALTY;
                     // Only consider this if no safe options exist or if it's better than other losing options
-                    if (isMaxPlayer && currentScore <= alpha && !safePieces.isEmpty()) continue; // Skip if worse than alpha and safe options exist
-                    if (!isMaxPlayer && currentScore >= beta && !safePieces.isEmpty()) continue; // Skip if worse than beta and safe options exist
+                    if ((isMaxPlayer ? currentScore <= alpha : currentScore >= beta) && !safePieces.isEmpty()) {
+                        stats.losingPiecesSkipped++;
+                        continue; // Skip if worse than the bound and safe options exist
+                    }
                 } else {
                     // Simulate giving the piece and recurse for opponent's placement turn
                     QuartoGame simGame = game.copy();
                     try {
                         simGame.setCurrentPiece(pieceId);
                         // Depth decreases, player switches, phase becomes placement
-                        Move resultFromPlacement = minimax(simGame, depth - 1, alpha, beta, !isMaxPlayer, true);
+                        Move resultFromPlacement = minimax(simGame, depth - 1, ply + 1, alpha, beta, !isMaxPlayer, true, stats);
 
                         if (resultFromPlacement == null) continue;
                         currentScore = resultFromPlacement.score;
@@ -256,6 +301,7 @@ public class ComputerAI {
 
                 // Alpha-Beta Pruning
                 if (beta <= alpha) {
+                    stats.cutoffsAtPly[ply]++;
                     break; // Prune remaining piece choices
                 }
             } // End piece choice loop
@@ -285,7 +331,7 @@ public class ComputerAI {
      * @param game The game state to evaluate.
      * @return A heuristic score (positive favors AI, negative favors opponent).
      */
-    private static double evaluateBoard(QuartoGame game) {
+    static double evaluateBoard(QuartoGame game) {
         // Win check is handled in minimax base case. Evaluate potential here.
         double score = 0;
         Board board = game.getBoard();
@@ -354,7 +400,7 @@ public class ComputerAI {
     // --- Helper Methods ---
 
     /** Checks if giving pieceId allows the opponent to win on their next placement. */
-    private static boolean canOpponentWinWithPiece(QuartoGame game, int pieceId) {
+    static boolean canOpponentWinWithPiece(QuartoGame game, int pieceId) {
         if (pieceId < 0 || pieceId > 15) return false;
         int[][] currentIntBoard = game.getIntBoard();
         for (int r = 0; r < 4; r++) {
@@ -52,6 +52,29 @@ public class QuartoGame {
         return win;
     }
 
+    /**
+     * Takes back the placement at the given position: the piece goes back into hand and the turn
+     * goes back to the player who placed it. Only valid for the last piece placed.
+     */
+    public void undoPlacement(int row, int col) {
+        if (currentPiece != null)
+            throw new IllegalStateException("A piece is already in hand");
+        Piece piece = board.removePiece(row, col);
+        if (piece == null)
+            throw new IllegalArgumentException("No piece at that position");
+
+        availablePieces[piece.getId()] = true;
+        currentPiece = piece;
+        currentPlayer = (currentPlayer == 1) ? 2 : 1;
+    }
+
+    /**
+     * Takes back the choice of the piece to be placed this turn.
+     */
+    public void clearCurrentPiece() {
+        currentPiece = null;
+    }
+
     /**
      * Converts the board's pieces to a 2D array of piece IDs for win checking.
      */
@@ -0,0 +1,110 @@
+package client.game;
+
+import java.util.Arrays;
+
+/**
+ * Counts the work done by one AI search, e.g. to compare nodes per second before and after a change.
+ * Plies are counted from the root of the search, one per action (placing a piece or choosing one).
+ * Not thread-safe: give each search its own instance, and {@link #add} them up afterwards.
+ */
+public class SearchStats {
+    public static final int MAX_PLY = 32;   // A game has at most 16 choices and 16 placements
+
+    long nodes;                 // Positions visited by minimax
+    long evaluations;           // Positions scored by the heuristic at the depth limit
+    final long[] nodesAtPly = new long[MAX_PLY + 1];
+    final long[] cutoffsAtPly = new long[MAX_PLY + 1];   // Alpha-beta cutoffs, by the ply of the node cut
+    long winScans;              // Placement nodes that first looked for an immediate win
+    long winScanPlacements;     // Placements tried by those scans
+    long winScanHits;           // Scans that found a win, so no subtree was searched
+    long piecesChecked;         // Pieces tested for handing the opponent an immediate win
+    long losingPieces;          // Pieces found to do so
+    long losingPiecesSkipped;   // Losing pieces dropped without being scored, as safe ones remained
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public long getNodesAtPly(int ply) {
+        return nodesAtPly[ply];
+    }
+
+    public long getCutoffsAtPly(int ply) {
+        return cutoffsAtPly[ply];
+    }
+
+    public long getCutoffs() {
+        long total = 0;
+        for (long cutoffs : cutoffsAtPly) total += cutoffs;
+        return total;
+    }
+
+    /**
+     * @return the deepest ply any node was visited at, or -1 if nothing was searched
+     */
+    public int getMaxPly() {
+        for (int ply = MAX_PLY; ply >= 0; ply--) {
+            if (nodesAtPly[ply] > 0) return ply;
+        }
+        return -1;
+    }
+
+    public long getWinScans() {
+        return winScans;
+    }
+
+    public long getWinScanPlacements() {
+        return winScanPlacements;
+    }
+
+    public long getWinScanHits() {
+        return winScanHits;
+    }
+
+    public long getPiecesChecked() {
+        return piecesChecked;
+    }
+
+    public long getLosingPieces() {
+        return losingPieces;
+    }
+
+    public long getLosingPiecesSkipped() {
+        return losingPiecesSkipped;
+    }
+
+    /**
+     * Adds the counts of another search to this one.
+     */
+    public void add(SearchStats other) {
+        nodes += other.nodes;
+        evaluations += other.evaluations;
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            nodesAtPly[ply] += other.nodesAtPly[ply];
+            cutoffsAtPly[ply] += other.cutoffsAtPly[ply];
+        }
+        winScans += other.winScans;
+        winScanPlacements += other.winScanPlacements;
+        winScanHits += other.winScanHits;
+        piecesChecked += other.piecesChecked;
+        losingPieces += other.losingPieces;
+        losingPiecesSkipped += other.losingPiecesSkipped;
+    }
+
+    public void reset() {
+        nodes = 0;
+        evaluations = 0;
+        Arrays.fill(nodesAtPly, 0);
+        Arrays.fill(cutoffsAtPly, 0);
+        winScans = 0;
+        winScanPlacements = 0;
+        winScanHits = 0;
+        piecesChecked = 0;
+        losingPieces = 0;
+        losingPiecesSkipped = 0;
+    }
+}
@@ -0,0 +1,175 @@
+package client.models;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client copy of the top of the server leaderboard, kept between visits to the statistics screen.
+ *
+ * The cache always holds exactly the players ranked at or above its boundary (the last row of the
+ * last page loaded), tagged with the server version it is current as of. Catching up only needs the
+ * players changed since that version: changed rows are updated in place, players who moved above
+ * the boundary are inserted and those who fell below it are dropped. Unchanged players keep their
+ * relative order, so the result is the same as reloading those pages.
+ *
+ * Rows carry absolute statistics, so seeing a change twice (in a page and again in a later delta)
+ * is harmless. Only used from the JavaFX thread.
+ */
+public class LeaderboardCache {
+    private static final Comparator<Player> ORDER = Comparator
+            .comparingDouble(Player::getRanking).reversed()
+            .thenComparing(Player::getUsername);
+
+    private final ObservableList<Player> players = FXCollections.observableArrayList();
+    private final Map<String, Player> byName = new HashMap<>();
+
+    private long epoch = 0;             // Server epoch the version belongs to; 0 before the first sync
+    private long version = -1;          // Server version the rows are current as of; -1 if never synced
+    private Player boundary;            // Last row of the loaded pages; null if no page is loaded
+    private boolean complete = false;   // True once the last page has been loaded
+
+    /**
+     * @return the cached rows, best first; patched in place, so it can be bound to a table once
+     */
+    public ObservableList<Player> getPlayers() {
+        return players;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return the server version the cache is current as of, or -1 if it has never been synced
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if no page has been loaded since the cache was created or reset
+     */
+    public boolean isEmpty() {
+        return boundary == null && !complete;
+    }
+
+    /**
+     * @return the cursor to load the following page from, or null if the whole leaderboard is cached
+     */
+    public String getNextCursor() {
+        if (complete || boundary == null) return null;
+        return boundary.getRanking() + "/" + boundary.getUsername();
+    }
+
+    /**
+     * Drops every row, e.g. when talking to a server that does not version its leaderboard.
+     */
+    public void clear() {
+        players.clear();
+        byName.clear();
+        epoch = 0;
+        version = -1;
+        boundary = null;
+        complete = false;
+    }
+
+    /**
+     * Brings the cache up to the server version in the changes.
+     *
+     * @return true if the server asked for a reset, leaving the cache empty
+     */
+    public boolean applyChanges(LeaderboardChanges changes) {
+        if (changes.isReset()) {
+            clear();
+        } else {
+            for (Player changed : parseRows(changes.getRows())) {
+                merge(changed);
+            }
+            sortAndTrim();
+        }
+        epoch = changes.getEpoch();
+        version = changes.getVersion();
+        return changes.isReset();
+    }
+
+    /**
+     * Appends a page loaded after the current boundary, or the whole table when {@code more} is false.
+     */
+    public void addPage(String rows, boolean more) {
+        List<Player> page = parseRows(rows);
+        for (Player player : page) {
+            merge(player);
+        }
+        if (!page.isEmpty()) {
+            // A copy: the cached row itself moves when that player's statistics change
+            Player last = page.get(page.size() - 1);
+            boundary = new Player(last.getUsername(), 0, 0, last.getRanking(), 0, 0, 0);
+        }
+        complete = !more;
+        sortAndTrim();
+    }
+
+    private void merge(Player player) {
+        Player cached = byName.get(player.getUsername());
+        if (cached != null) {
+            cached.update(player);
+        } else {
+            byName.put(player.getUsername(), player);
+            players.add(player);
+        }
+    }
+
+    /**
+     * Restores the ranking order and drops the rows that fell below the boundary.
+     */
+    private void sortAndTrim() {
+        FXCollections.sort(players, ORDER);
+        if (complete || boundary == null) return;
+        int end = players.size();
+        while (end > 0 && ORDER.compare(players.get(end - 1), boundary) > 0) {
+            end--;
+        }
+        if (end < players.size()) {
+            for (Player dropped : players.subList(end, players.size())) {
+                byName.remove(dropped.getUsername());
+            }
+            players.remove(end, players.size());
+        }
+    }
+
+    /**
+     * Parses rows in the getAllPlayers format ({@code name,win%,games,ranking,wins,draws,losses;...}).
+     * Malformed rows are skipped.
+     */
+    public static List<Player> parseRows(String response) {
+        List<Player> players = new ArrayList<>();
+        if (response != null && !response.trim().isEmpty()) {
+            String[] entries = response.split(";");
+            for (String entry : entries) {
+                String[] parts = entry.split(",");
+                if (parts.length == 7) {
+                    try {
+                        String username = parts[0].trim();
+                        double winPerc = Double.parseDouble(parts[1].trim());
+                        int gamesPlayed = Integer.parseInt(parts[2].trim());
+                        double ranking = Double.parseDouble(parts[3].trim());
+                        int wins = Integer.parseInt(parts[4].trim());
+                        int draws = Integer.parseInt(parts[5].trim());
+                        int losses = Integer.parseInt(parts[6].trim());
+
+                        players.add(new Player(username, winPerc, gamesPlayed, ranking, wins, draws, losses));
+                    } catch (NumberFormatException e) {
+                        System.err.println("⚠ Invalid player data: " + entry);
+                    }
+                }
+            }
+        }
+        return players;
+    }
+}
@@ -0,0 +1,64 @@
+package client.models;
+
+/**
+ * The leaderboard rows changed since a client's cached version, as returned by leaderboardChanges.
+ */
+public class LeaderboardChanges {
+    private final long epoch;
+    private final long version;
+    private final boolean reset;
+    private final String rows;
+
+    public LeaderboardChanges(long epoch, long version, boolean reset, String rows) {
+        this.epoch = epoch;
+        this.version = version;
+        this.reset = reset;
+        this.rows = rows;
+    }
+
+    /**
+     * Parses the response data: {@code <epoch> <version> delta|reset <rows>}.
+     *
+     * @throws IllegalArgumentException if the data is malformed
+     */
+    public static LeaderboardChanges parse(String data) {
+        String[] parts = data.split(" ", 4);
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("Malformed leaderboard changes: " + data);
+        }
+        try {
+            return new LeaderboardChanges(
+                    Long.parseLong(parts[0]),
+                    Long.parseLong(parts[1]),
+                    parts[2].equals("reset"),
+                    (parts.length > 3) ? parts[3] : "");
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed leaderboard changes: " + data, e);
+        }
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return the server version these changes bring the cache up to
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if the cache must be dropped and reloaded from the top
+     */
+    public boolean isReset() {
+        return reset;
+    }
+
+    /**
+     * @return the changed players in the getAllPlayers format
+     */
+    public String getRows() {
+        return rows;
+    }
+}
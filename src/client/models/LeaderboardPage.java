@@ -0,0 +1,82 @@
+package client.models;
+
+/**
+ * One page of the server leaderboard, as returned by leaderboardTop, leaderboardPage and leaderboardAround.
+ * The rows are kept in the getAllPlayers text format.
+ */
+public class LeaderboardPage {
+    private final int myRank;
+    private final int firstRank;
+    private final int total;
+    private final String nextCursor;
+    private final String rows;
+
+    public LeaderboardPage(int myRank, int firstRank, int total, String nextCursor, String rows) {
+        this.myRank = myRank;
+        this.firstRank = firstRank;
+        this.total = total;
+        this.nextCursor = nextCursor;
+        this.rows = rows;
+    }
+
+    /**
+     * Parses the response data: {@code <myRank> <firstRank> <total> <nextCursor or -> <rows>}.
+     *
+     * @throws IllegalArgumentException if the data is malformed
+     */
+    public static LeaderboardPage parse(String data) {
+        String[] parts = data.split(" ", 5);
+        if (parts.length < 4) {
+            throw new IllegalArgumentException("Malformed leaderboard page: " + data);
+        }
+        try {
+            return new LeaderboardPage(
+                    Integer.parseInt(parts[0]),
+                    Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]),
+                    parts[3].equals("-") ? null : parts[3],
+                    (parts.length > 4) ? parts[4] : "");
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed leaderboard page: " + data, e);
+        }
+    }
+
+    /**
+     * @return the requesting player's 1-based rank, or 0 if not ranked
+     */
+    public int getMyRank() {
+        return myRank;
+    }
+
+    /**
+     * @return the 1-based rank of the first row
+     */
+    public int getFirstRank() {
+        return firstRank;
+    }
+
+    /**
+     * @return the number of players on the whole leaderboard
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the cursor for the following page, or null if this is the last one
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * @return the rows in the getAllPlayers format ({@code name,win%,games,ranking,wins,draws,losses;...})
+     */
+    public String getRows() {
+        return rows;
+    }
+}
@@ -4,7 +4,8 @@ import javafx.beans.property.*;
 
 /**
  * Represents a player and their game statistics.
- * Used for data binding in JavaFX UI.
+ * Client-side view model used for data binding in JavaFX UI; the server keeps
+ * statistics as plain {@code server.model.PlayerStats} records instead.
  */
 public class Player {
     private final StringProperty username;
@@ -66,6 +67,18 @@ public class Player {
         return losses;
     }
 
+    /**
+     * Copies another player's statistics into this one, so bound table rows update in place.
+     */
+    public void update(Player other) {
+        winPercentage.set(other.getWinPercentage());
+        gamesPlayed.set(other.getGamesPlayed());
+        ranking.set(other.getRanking());
+        wins.set(other.getWins());
+        draws.set(other.getDraws());
+        losses.set(other.getLosses());
+    }
+
     // Getters
 
     public String getUsername() {
@@ -1,5 +1,7 @@
 package client.network;
 
+import client.models.LeaderboardCache;
+
 /**
  * A utility class to manage the current TCP connection and game session context.
  * Stores whether the game is online and the current player's username.
@@ -8,6 +10,7 @@ public class ConnectionManager {
     private static TCPClient tcpClient;
     private static boolean isOnlineGame = false;
     private static String currentUsername; // 🆕
+    private static LeaderboardCache leaderboardCache = new LeaderboardCache();
 
     /**
      * Gets the active TCPClient instance used for communication.
@@ -22,9 +25,20 @@ public class ConnectionManager {
      * @param client the TCPClient to set
      */
     public static void setTcpClient(TCPClient client) {
+        if (client != tcpClient) {
+            leaderboardCache = new LeaderboardCache();   // Cached rows belong to the previous server
+        }
         tcpClient = client;
     }
 
+    /**
+     * Gets the statistics cached from the current server, kept between visits to the statistics screen.
+     * @return the leaderboard cache
+     */
+    public static LeaderboardCache getLeaderboardCache() {
+        return leaderboardCache;
+    }
+
     /**
      * Checks if the game is currently in online mode.
      * @return true if online, false if offline
@@ -24,4 +24,10 @@ public interface GameSessionListener {
      *
      * @param pieceId the ID of the selected piece
      */    void opponentChosePiece(int pieceId);
+
+    /**
+     * Called when the opponent disconnects before the game has ended.
+     */
+    default void opponentLeft() {
+    }
 }
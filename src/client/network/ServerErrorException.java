@@ -0,0 +1,29 @@
+package client.network;
+
+import java.io.IOException;
+
+/**
+ * Signals that the server answered a request with an error line instead of a response.
+ */
+public class ServerErrorException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ServerErrorException(String serverMessage) {
+        super("Server error: " + serverMessage);
+    }
+
+    /**
+     * @return true if the server did not recognise the command (e.g. an older server version)
+     */
+    public boolean isUnknownCommand() {
+        return getMessage().contains("Unknown command");
+    }
+
+    /**
+     * @return true if the server was too busy to handle the request; it is safe to retry later
+     */
+    public boolean isBusy() {
+        return getMessage().contains("Server busy");
+    }
+}
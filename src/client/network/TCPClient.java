@@ -1,7 +1,28 @@
 package client.network;
 
+import client.models.LeaderboardChanges;
+import client.models.LeaderboardPage;
+import common.protocol.BinaryCodec;
+import common.protocol.Frame;
+import common.protocol.FrameReader;
+import common.protocol.Handshake;
+import common.protocol.LoginResult;
+import common.protocol.WireFormat;
+
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * TCPClient manages the connection between a client and the server.
@@ -10,58 +31,183 @@ import java.net.*;
 public class TCPClient {
 
     private String userName;
-    private static final int port = 1234;
-    private static final String serverAddress = "localhost";
-    private BufferedReader input;
-    private PrintWriter output;
+    private static final int DEFAULT_PORT = 1234;
+    private static final String DEFAULT_HOST = "localhost";
+    private static final int HANDSHAKE_TIMEOUT_MS = 3000;
+    private static final long REQUEST_TIMEOUT_MS = 5000;
+    private FrameReader input;
+    private OutputStream output;
     private Socket socket;
+    private volatile WireFormat format = WireFormat.TEXT;
+    private volatile boolean closed = false;     // Set by close(), so the reader does not report the socket it lost
     private java.util.function.Consumer<String> chatListener;
+    private volatile java.util.function.Consumer<LeaderboardChanges> leaderboardListener;
+
+    // Outstanding requests, matched to their responses by request ID
+    private volatile boolean correlated = false;
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, CompletableFuture<String>> pendingRequests = new ConcurrentHashMap<>();
+    // Used instead when the server does not echo request IDs: only the head has been sent
+    private final Deque<PendingRequest> untaggedRequests = new ArrayDeque<>();
 
-    // Response lock for synchronous communication
-    private String response;
-    private final Object lock = new Object();
+    /**
+     * A request without an ID, waiting for its turn to be sent and then for the response.
+     */
+    private static class PendingRequest {
+        final String command;
+        final String line;
+        final CompletableFuture<String> future;
+
+        PendingRequest(String command, String line, CompletableFuture<String> future) {
+            this.command = command;
+            this.line = line;
+            this.future = future;
+        }
+    }
 
     private GameSessionListener gameSessionListener;
 
     // Flags to handle connection termination
-    private boolean hasHandledOpponentLeft = false;
-    private boolean gameEndedGracefully = false;
+    private volatile boolean hasHandledOpponentLeft = false;
+    private volatile boolean gameEndedGracefully = false;
 
     public void setGameSessionListener(GameSessionListener listener) {
         this.gameSessionListener = listener;
     }
 
+    /**
+     * Connects using the wire format named by the "quarto.protocol" system property (binary by default).
+     */
     public TCPClient(String name) {
+        this(name, WireFormat.fromName(System.getProperty("quarto.protocol", "binary")));
+    }
+
+    /**
+     * Connects and negotiates the preferred wire format with the server.
+     * Falls back to the text protocol if the server does not support negotiation.
+     */
+    public TCPClient(String name, WireFormat preferredFormat) {
+        this(name, DEFAULT_HOST, DEFAULT_PORT, preferredFormat);
+    }
+
+    /**
+     * Connects to the given server and negotiates the preferred wire format.
+     */
+    public TCPClient(String name, String host, int port, WireFormat preferredFormat) {
         userName = name;
         try {
-            socket = new Socket(serverAddress, port);
-            output = new PrintWriter(socket.getOutputStream(), true);
-            input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);     // Each move is sent and flushed on its own
+            output = new BufferedOutputStream(socket.getOutputStream());
+            input = new FrameReader(new BufferedInputStream(socket.getInputStream()));
+            negotiateProtocol(preferredFormat);
         } catch (IOException e) {
             e.printStackTrace();
         }
+        if (input == null) return;      // Not connected; isConnected() reports it
 
         // Start background listener thread to handle incoming messages
         Thread listener = new Thread(() -> {
             try {
-                String msg;
-                while ((msg = input.readLine()) != null) {
-                    processCommand(msg);
+                while (true) {
+                    if (format == WireFormat.BINARY) {
+                        Frame frame = input.readFrame();
+                        if (frame == null) break;
+                        processFrame(frame);
+                    } else {
+                        String msg = input.readLine();
+                        if (msg == null) break;
+                        processCommand(msg);
+                    }
                 }
             } catch (SocketException e) {
                 System.out.println("TCPClient: Socket closed gracefully.");
             } catch (IOException e) {
-                e.printStackTrace();
+                if (!closed) e.printStackTrace();
+            } finally {
+                failPendingRequests(new IOException("Connection to server closed"));
             }
         });
         listener.setDaemon(true);
         listener.start();
     }
 
+    /**
+     * Connects on a background thread, so the caller (typically the JavaFX thread) never blocks
+     * on the TCP connect or the protocol handshake.
+     * @return a future completed with the connected client, or failed if the server is unreachable
+     */
+    public static CompletableFuture<TCPClient> connectAsync(String name) {
+        return CompletableFuture.supplyAsync(() -> {
+            TCPClient client = new TCPClient(name);
+            if (!client.isConnected()) {
+                throw new CompletionException(new IOException("Could not connect to " + DEFAULT_HOST + ":" + DEFAULT_PORT));
+            }
+            return client;
+        });
+    }
+
+    /**
+     * @return true if the socket was opened successfully and has not been closed
+     */
+    public boolean isConnected() {
+        return socket != null && socket.isConnected() && !socket.isClosed();
+    }
+
+    /**
+     * Offers the preferred format and our protocol version to the server and waits for its answer.
+     * Old servers reply with an unknown-command error, in which case we stay on text version 1.
+     */
+    private void negotiateProtocol(WireFormat preferredFormat) throws IOException {
+        sendMessage(new Handshake(Handshake.VERSION_CURRENT, preferredFormat).toLine());
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+        try {
+            Handshake answer = Handshake.parse(input.readLine());
+            if (answer != null) {
+                format = answer.getFormat();
+                correlated = answer.getVersion() >= Handshake.VERSION_CORRELATION;
+            }
+        } catch (SocketTimeoutException e) {
+            System.err.println("TCPClient: No handshake answer, using text protocol.");
+        } finally {
+            socket.setSoTimeout(0);
+        }
+    }
+
+    /**
+     * Processes a binary frame. Moves are delivered straight to the game session listener,
+     * everything else goes through the text command handling.
+     */
+    private void processFrame(Frame frame) {
+        byte[] payload = frame.getPayload();
+        switch (frame.getOpcode()) {
+            case BinaryCodec.OP_MOVE_PLACE:
+                if (gameSessionListener != null && payload.length == 1) {
+                    gameSessionListener.opponentPlacedPiece(BinaryCodec.rowOf(payload[0]), BinaryCodec.colOf(payload[0]));
+                }
+                break;
+
+            case BinaryCodec.OP_MOVE_CHOOSE:
+                if (gameSessionListener != null && payload.length == 1) {
+                    gameSessionListener.opponentChosePiece(payload[0] & 0x0F);
+                }
+                break;
+
+            default:
+                processCommand(BinaryCodec.toLine(frame));
+                break;
+        }
+    }
+
     /**
      * Processes messages received from the server based on protocol commands.
      */
     private void processCommand(String message) {
+        if (message.startsWith("@")) {
+            completeTaggedRequest(message);
+            return;
+        }
+
         String[] parts = message.split(" ", 2);
         String command = parts[0];
         String data = (parts.length > 1) ? parts[1] : "";
@@ -70,8 +216,18 @@ public class TCPClient {
             case "isNameExistInDB":
             case "isPasswordCorrect":
             case "registerUser":
+            case "login":
             case "getAllPlayers":
-                setResponse(data);
+            case "leaderboardTop":
+            case "leaderboardPage":
+            case "leaderboardAround":
+            case "leaderboardChanges":
+            case "subscribeLeaderboard":
+            case "gameHistory":
+            case "headToHead":
+            case "listSessions":
+            case "spectate":
+                completeUntaggedRequest(command, data);
                 break;
 
             case "startOnlineGameMyTurn":
@@ -129,7 +285,7 @@ public class TCPClient {
 
             case "Error:":
                 System.err.println("Server error: " + data);
-                setResponse("Error:" + data);
+                failUntaggedRequest(commandOfError(data), new ServerErrorException(data));
                 break;
 
             case "opponentLeft":
@@ -137,12 +293,9 @@ public class TCPClient {
                 hasHandledOpponentLeft = true;
 
                 System.out.println("Your opponent has left the game.");
-                javafx.application.Platform.runLater(() -> {
-                    if (gameSessionListener instanceof client.controllers.GameEngine engine) {
-                        engine.setOpponentDisconnected(true);
-                        engine.opponentQuitAndYouWon(); // 🆕 מבצע את כל הטיפול
-                    }
-                });
+                if (gameSessionListener != null) {
+                    gameSessionListener.opponentLeft();
+                }
                 break;
 
             case "chat":
@@ -151,36 +304,295 @@ public class TCPClient {
                 }
                 break;
 
+            case "leaderboardUpdate": {
+                java.util.function.Consumer<LeaderboardChanges> listener = leaderboardListener;
+                if (listener != null) {
+                    try {
+                        listener.accept(LeaderboardChanges.parse(data));
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("⚠ " + e.getMessage());
+                    }
+                }
+                break;
+            }
+
+            case "sessionEnded":
+                System.out.println("Spectated game " + data + " has ended.");
+                break;
+
             default:
+                // Never hand unknown lines to a waiting request; they could satisfy the wrong caller
                 System.out.println("Unknown server response: " + message);
-                setResponse(message);
                 break;
         }
     }
 
+    // ----------------------------
+    // Request/response matching
+    // ----------------------------
+
     /**
-     * Synchronized setter for server responses.
+     * Sends a request and returns a future completed with the response data (the text after
+     * the command name). The future fails with a TimeoutException if no response arrives in time.
+     *
+     * With a server that echoes request IDs, requests are pipelined: any number can be outstanding
+     * at once. Otherwise they are sent one at a time, since an error line without an ID could not be
+     * told apart between several outstanding requests.
      */
-    private void setResponse(String data) {
-        synchronized (lock) {
-            response = data;
-            lock.notifyAll();
+    private CompletableFuture<String> request(String line) {
+        CompletableFuture<String> future = new CompletableFuture<String>().orTimeout(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (correlated) {
+            int requestId = nextRequestId.incrementAndGet();
+            pendingRequests.put(requestId, future);
+            // Forget the request once it times out; a late response is then simply ignored
+            future.whenComplete((data, error) -> pendingRequests.remove(requestId, future));
+            sendMessage("@" + requestId + " " + line);
+        } else {
+            PendingRequest pending = new PendingRequest(line.split(" ", 2)[0], line, future);
+            // Whether answered, failed or timed out, the request leaves the queue and the next one goes out
+            future.whenComplete((data, error) -> finishUntaggedRequest(pending));
+            synchronized (untaggedRequests) {
+                untaggedRequests.add(pending);
+                if (untaggedRequests.peekFirst() == pending) sendMessage(line);
+            }
         }
+        return future;
     }
 
     /**
-     * Blocks the current thread until a server response is received.
+     * Completes the request whose ID tags this response ("@<id> <command> <data>").
      */
-    private void waitForResponse() {
-        synchronized (lock) {
-            while (response == null) {
-                try {
-                    lock.wait();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
+    private void completeTaggedRequest(String message) {
+        String[] parts = message.split(" ", 3);
+        CompletableFuture<String> future;
+        try {
+            future = pendingRequests.remove(Integer.parseInt(parts[0].substring(1)));
+        } catch (NumberFormatException e) {
+            System.err.println("TCPClient: Malformed response tag: " + message);
+            return;
+        }
+        if (future == null) {
+            System.out.println("TCPClient: Response for unknown request: " + message);
+            return;
+        }
+        String command = (parts.length > 1) ? parts[1] : "";
+        String data = (parts.length > 2) ? parts[2] : "";
+        if (command.equals("Error:")) {
+            future.completeExceptionally(new ServerErrorException(data));
+        } else {
+            future.complete(data);
+        }
+    }
+
+    /**
+     * Completes the untagged request in flight if the response is for its command.
+     * A late response to a request that already timed out is ignored the same way.
+     */
+    private void completeUntaggedRequest(String command, String data) {
+        PendingRequest inFlight;
+        synchronized (untaggedRequests) {
+            inFlight = untaggedRequests.peekFirst();
+        }
+        if (inFlight != null && inFlight.command.equals(command)) {
+            inFlight.future.complete(data);
+        } else {
+            System.out.println("TCPClient: Unsolicited response: " + command + " " + data);
+        }
+    }
+
+    /**
+     * Fails the untagged request in flight with an error line.
+     *
+     * @param command the command the error names, or null if it names none
+     */
+    private void failUntaggedRequest(String command, Throwable cause) {
+        PendingRequest inFlight;
+        synchronized (untaggedRequests) {
+            inFlight = untaggedRequests.peekFirst();
+        }
+        if (inFlight != null && (command == null || inFlight.command.equals(command))) {
+            inFlight.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Removes a completed untagged request and, if it was the one in flight, sends the next.
+     */
+    private void finishUntaggedRequest(PendingRequest pending) {
+        synchronized (untaggedRequests) {
+            boolean inFlight = untaggedRequests.peekFirst() == pending;
+            if (!untaggedRequests.removeFirstOccurrence(pending)) return;
+            PendingRequest next = untaggedRequests.peekFirst();
+            if (inFlight && next != null) sendMessage(next.line);
+        }
+    }
+
+    /**
+     * @return the command an error line names, as in "Unknown command: login", or null
+     */
+    private static String commandOfError(String data) {
+        String marker = "Unknown command: ";
+        int at = data.indexOf(marker);
+        return (at < 0) ? null : data.substring(at + marker.length()).trim().split(" ", 2)[0];
+    }
+
+    private void failPendingRequests(Throwable cause) {
+        for (Integer requestId : pendingRequests.keySet()) {
+            CompletableFuture<String> future = pendingRequests.remove(requestId);
+            if (future != null) future.completeExceptionally(cause);
         }
+        // Take them all first, so failing them does not send the next over the lost connection
+        List<PendingRequest> untagged;
+        synchronized (untaggedRequests) {
+            untagged = new ArrayList<>(untaggedRequests);
+            untaggedRequests.clear();
+        }
+        for (PendingRequest pending : untagged) {
+            pending.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Blocks until the response arrives.
+     * @return the response data, or null if the request failed
+     */
+    private String awaitResponse(CompletableFuture<String> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            System.err.println("TCPClient: Request failed: " + (cause instanceof TimeoutException
+                    ? "no response within " + REQUEST_TIMEOUT_MS + " ms"
+                    : cause.getMessage()));
+        }
+        return null;
+    }
+
+    // ----------------------------
+    // Asynchronous Request Methods
+    // ----------------------------
+
+    /**
+     * Asynchronously checks whether a username is registered.
+     * Also binds the username to this connection on the server.
+     */
+    public CompletableFuture<Boolean> isNameExistInDBAsync(String name) {
+        return request("isNameExistInDB " + name).thenApply(Boolean::parseBoolean);
+    }
+
+    /**
+     * Asynchronously validates the password of the username bound by isNameExistInDBAsync.
+     */
+    public CompletableFuture<Boolean> isPasswordCorrectAsync(String password) {
+        return request("isPasswordCorrect " + password).thenApply(Boolean::parseBoolean);
+    }
+
+    /**
+     * Asynchronously registers a new user.
+     * @return a future completed with true if the account was created
+     */
+    public CompletableFuture<Boolean> registerUserAsync(String userName, String password) {
+        return request("registerUser " + userName + " " + password).thenApply("success"::equals);
+    }
+
+    /**
+     * Logs in with a single round trip, creating the account if the username is new.
+     * Falls back to the separate name/password/register requests when talking to a server
+     * that does not know the login command.
+     */
+    public CompletableFuture<LoginResult> loginAsync(String userName, String password) {
+        return request("login " + userName + " " + password)
+                .thenApply(LoginResult::fromWireName)
+                .exceptionallyCompose(error -> {
+                    Throwable cause = (error instanceof CompletionException) ? error.getCause() : error;
+                    if (cause instanceof ServerErrorException serverError && serverError.isUnknownCommand()) {
+                        return legacyLoginAsync(userName, password);
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    private CompletableFuture<LoginResult> legacyLoginAsync(String userName, String password) {
+        return isNameExistInDBAsync(userName).thenCompose(exists -> exists
+                ? isPasswordCorrectAsync(password).thenApply(ok -> ok ? LoginResult.OK : LoginResult.WRONG_PASSWORD)
+                : registerUserAsync(userName, password).thenApply(ok -> ok ? LoginResult.CREATED : LoginResult.ERROR));
+    }
+
+    /**
+     * Asynchronously fetches the statistics of all players in the getAllPlayers text format.
+     */
+    public CompletableFuture<String> getPlayersDataAsync() {
+        return request("getAllPlayers");
+    }
+
+    /**
+     * Asynchronously fetches the best {@code count} players.
+     */
+    public CompletableFuture<LeaderboardPage> getLeaderboardTopAsync(int count) {
+        return request("leaderboardTop " + count).thenApply(LeaderboardPage::parse);
+    }
+
+    /**
+     * Asynchronously fetches the {@code count} players following a previous page.
+     *
+     * @param cursor the previous page's {@link LeaderboardPage#getNextCursor() next cursor}
+     */
+    public CompletableFuture<LeaderboardPage> getLeaderboardPageAsync(String cursor, int count) {
+        return request("leaderboardPage " + cursor + " " + count).thenApply(LeaderboardPage::parse);
+    }
+
+    /**
+     * Asynchronously fetches the leaderboard rows changed since a cached version.
+     *
+     * @param epoch   the epoch of the cached version, 0 if there is none
+     * @param version the cached version, or -1 if there is none (the server then asks for a reset)
+     */
+    public CompletableFuture<LeaderboardChanges> getLeaderboardChangesAsync(long epoch, long version) {
+        String since = (version < 0) ? "- -" : epoch + " " + version;
+        return request("leaderboardChanges " + since).thenApply(LeaderboardChanges::parse);
+    }
+
+    /**
+     * Asks the server to push leaderboardUpdate lines, in the leaderboardChanges format, whenever the
+     * standings change after the given version. Updates go to the {@link #setLeaderboardListener listener}.
+     */
+    public CompletableFuture<String> subscribeLeaderboardAsync(long epoch, long version) {
+        String since = (version < 0) ? "- -" : epoch + " " + version;
+        return request("subscribeLeaderboard " + since);
+    }
+
+    /**
+     * Stops the server pushing leaderboard updates.
+     */
+    public void unsubscribeLeaderboard() {
+        sendMessage("unsubscribeLeaderboard");
+    }
+
+    /**
+     * Asynchronously fetches a page of a player's finished games, newest first.
+     * The response is {@code <nextBeforeId or -> <games>}, games separated by ';' as
+     * {@code id,playerA,playerB,result,a|b started,startedAt,endedAt,movesHex}.
+     *
+     * @param beforeId the previous page's nextBeforeId, or null for the most recent games
+     */
+    public CompletableFuture<String> getGameHistoryAsync(String username, String beforeId, int count) {
+        return request("gameHistory " + username + " " + (beforeId == null ? "-" : beforeId) + " " + count);
+    }
+
+    /**
+     * Asynchronously fetches a page of the games between two players, in the same format as {@link #getGameHistoryAsync}.
+     */
+    public CompletableFuture<String> getHeadToHeadAsync(String username1, String username2, String beforeId, int count) {
+        return request("headToHead " + username1 + " " + username2 + " " + (beforeId == null ? "-" : beforeId) + " " + count);
+    }
+
+    /**
+     * Asynchronously fetches a window of about {@code count} players centred on the given player.
+     */
+    public CompletableFuture<LeaderboardPage> getLeaderboardAroundAsync(String username, int count) {
+        return request("leaderboardAround " + username + " " + count).thenApply(LeaderboardPage::parse);
     }
 
     // ----------------------------
@@ -188,29 +600,40 @@ public class TCPClient {
     // ----------------------------
 
     public boolean isNameExistInDB(String name) {
-        sendMessage("isNameExistInDB " + name);
-        waitForResponse();
-        boolean result = Boolean.parseBoolean(response);
-        response = null;
-        return result;
+        return Boolean.parseBoolean(awaitResponse(request("isNameExistInDB " + name)));
     }
 
     public boolean isPasswordCorrect(String password) {
-        sendMessage("isPasswordCorrect " + password);
-        waitForResponse();
-        boolean result = Boolean.parseBoolean(response);
-        response = null;
-        return result;
+        return Boolean.parseBoolean(awaitResponse(request("isPasswordCorrect " + password)));
     }
 
     public void registerUser(String userName, String password) {
-        sendMessage("registerUser " + userName + " " + password);
-        waitForResponse();
-        System.out.println("Registration result: " + response);
-        response = null;
+        System.out.println("Registration result: " + awaitResponse(request("registerUser " + userName + " " + password)));
+    }
+
+    /**
+     * Sends several requests back to back over this connection, then waits for all responses.
+     * The requests are in flight together, so this costs one round trip instead of one per request.
+     *
+     * @param requests full request lines, e.g. "getAllPlayers" or "listSessions"
+     * @return the response data of each request, in the same order (null for failed requests)
+     */
+    public List<String> pipeline(String... requests) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(requests.length);
+        for (String line : requests) {
+            futures.add(request(line));
+        }
+        List<String> responses = new ArrayList<>(requests.length);
+        for (CompletableFuture<String> future : futures) {
+            responses.add(awaitResponse(future));
+        }
+        return responses;
     }
 
     public void startGameSessionWithServer() {
+        // A new game on the same connection; the previous game's ending no longer applies
+        hasHandledOpponentLeft = false;
+        gameEndedGracefully = false;
         sendMessage("startOnlineGame " + userName);
     }
 
@@ -230,19 +653,53 @@ public class TCPClient {
     }
 
     public String getPlayersData() {
-        sendMessage("getAllPlayers");
-        waitForResponse();
-        String playersData = response;
-        response = null;
-        return playersData;
+        return awaitResponse(request("getAllPlayers"));
+    }
+
+    /**
+     * Lists the games currently running on the server.
+     * @return entries of the form "id,player1,player2,spectators;" concatenated
+     */
+    public String getActiveSessions() {
+        return awaitResponse(request("listSessions"));
+    }
+
+    /**
+     * Joins a running game as a spectator. Moves and chat of that game are then
+     * delivered to the registered GameSessionListener and chat listener.
+     * @return true if the server accepted the request
+     */
+    public boolean spectateSession(long sessionId) {
+        String result = awaitResponse(request("spectate " + sessionId));
+        return result != null && result.startsWith("ok");
+    }
+
+    public void stopSpectating() {
+        sendMessage("stopSpectating");
     }
 
     public void sendMessage(String message) {
-        if (output != null) {
-            output.println(message);
+        if (output == null) return;
+        byte[] encoded = (format == WireFormat.BINARY)
+                ? BinaryCodec.encodeLine(message)
+                : (message + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (output) {
+            try {
+                output.write(encoded);
+                output.flush();
+            } catch (IOException e) {
+                System.err.println("TCPClient: Failed to send message: " + e.getMessage());
+            }
         }
     }
 
+    /**
+     * @return the wire format agreed with the server
+     */
+    public WireFormat getWireFormat() {
+        return format;
+    }
+
     public String getUserName() {
         return userName;
     }
@@ -252,6 +709,7 @@ public class TCPClient {
     }
 
     public void close() throws IOException {
+        closed = true;
         if (socket != null) socket.close();
         if (input != null) input.close();
         if (output != null) output.close();
@@ -265,4 +723,11 @@ public class TCPClient {
         this.chatListener = listener;
     }
 
+    /**
+     * Sets the listener for pushed leaderboard updates, called on the reader thread; null to remove it.
+     */
+    public void setLeaderboardListener(java.util.function.Consumer<LeaderboardChanges> listener) {
+        this.leaderboardListener = listener;
+    }
+
 }
@@ -0,0 +1,274 @@
+package common.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoder/decoder for the binary wire format.
+ *
+ * Every frame is {@code [varint length][opcode][varint requestId]?[payload]}, where length counts
+ * everything after the prefix. The request ID is only present when the opcode has {@link #FLAG_CORRELATED}
+ * set; it is the binary form of the {@code @<id>} tag that prefixes correlated text lines.
+ * Moves get dedicated opcodes with a single payload byte (the square or piece, each 0-15), the
+ * player table has a compact row encoding, and every other command travels as a TEXT frame carrying
+ * the same line the text protocol would send. This keeps every command available in binary mode
+ * while only the high-volume messages need bespoke encodings.
+ */
+public final class BinaryCodec {
+
+    public static final byte OP_TEXT = 0x01;
+    public static final byte OP_MOVE_PLACE = 0x02;   // payload: square = row * 4 + col
+    public static final byte OP_MOVE_CHOOSE = 0x03;  // payload: piece id
+    public static final byte OP_PLAYERS = 0x04;      // payload: see PlayersEncoder
+
+    // Smallest PLAYERS row: an empty name (1), two doubles (16) and four one-byte varints (4)
+    private static final int MIN_PLAYER_ROW_BYTES = 21;
+
+    /** Opcode bit marking that a varint request ID follows the opcode. */
+    public static final int FLAG_CORRELATED = 0x80;
+
+    private BinaryCodec() {
+    }
+
+    // --- Frame encoding ---
+
+    /**
+     * Builds a complete frame (length prefix included) from an opcode and payload.
+     */
+    public static byte[] frame(byte opcode, byte[] payload) {
+        return frame(opcode, payload, Frame.NO_REQUEST_ID);
+    }
+
+    /**
+     * Builds a complete frame, tagged with a request ID unless it is {@link Frame#NO_REQUEST_ID}.
+     */
+    public static byte[] frame(byte opcode, byte[] payload, int requestId) {
+        return frame(opcode, payload, 0, payload.length, requestId);
+    }
+
+    /**
+     * Builds a complete frame from part of an array, tagged with a request ID unless it is {@link Frame#NO_REQUEST_ID}.
+     */
+    public static byte[] frame(byte opcode, byte[] payload, int offset, int length, int requestId) {
+        boolean correlated = requestId >= 0;
+        int bodyLength = 1 + (correlated ? varIntSize(requestId) : 0) + length;
+        byte[] frame = new byte[varIntSize(bodyLength) + bodyLength];
+        int pos = writeVarInt(frame, 0, bodyLength);
+        frame[pos++] = correlated ? (byte) (opcode | FLAG_CORRELATED) : opcode;
+        if (correlated) pos = writeVarInt(frame, pos, requestId);
+        System.arraycopy(payload, offset, frame, pos, length);
+        return frame;
+    }
+
+    /**
+     * Wraps a text protocol line into a TEXT frame.
+     */
+    public static byte[] textFrame(String line) {
+        return frame(OP_TEXT, line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static byte[] movePlaceFrame(int row, int col) {
+        return new byte[]{2, OP_MOVE_PLACE, (byte) (row * 4 + col)};
+    }
+
+    public static byte[] moveChooseFrame(int pieceId) {
+        return new byte[]{2, OP_MOVE_CHOOSE, (byte) pieceId};
+    }
+
+    /**
+     * Encodes a text protocol line, using the compact move opcodes where the line is a well-formed move.
+     * A leading {@code @<id>} tag is moved into the frame header.
+     */
+    public static byte[] encodeLine(String line) {
+        int requestId = Frame.NO_REQUEST_ID;
+        if (line.startsWith("@")) {
+            int space = line.indexOf(' ');
+            try {
+                requestId = Integer.parseInt(line.substring(1, space < 0 ? line.length() : space));
+                line = (space < 0) ? "" : line.substring(space + 1);
+            } catch (NumberFormatException ignored) {
+                // Not a valid tag; send the line untouched
+            }
+        }
+        if (requestId == Frame.NO_REQUEST_ID) {
+            String[] parts = line.split(" ");
+            try {
+                if (parts.length == 3 && parts[0].equals("movePlace")) {
+                    int row = Integer.parseInt(parts[1]);
+                    int col = Integer.parseInt(parts[2]);
+                    if (isNibbleRange(row, 4) && isNibbleRange(col, 4)) return movePlaceFrame(row, col);
+                } else if (parts.length == 2 && parts[0].equals("moveChoose")) {
+                    int pieceId = Integer.parseInt(parts[1]);
+                    if (isNibbleRange(pieceId, 16)) return moveChooseFrame(pieceId);
+                }
+            } catch (NumberFormatException ignored) {
+                // Not a well-formed move; send it as text and let the receiver report the error
+            }
+        }
+        return frame(OP_TEXT, line.getBytes(StandardCharsets.UTF_8), requestId);
+    }
+
+    // --- Frame decoding ---
+
+    /**
+     * Converts a decoded frame back into the equivalent text protocol line.
+     * Used where a receiver has no specialised handling for an opcode.
+     *
+     * @throws IllegalArgumentException if a PLAYERS payload is malformed
+     */
+    public static String toLine(Frame frame) {
+        String line = toUntaggedLine(frame);
+        return (frame.getRequestId() >= 0) ? "@" + frame.getRequestId() + " " + line : line;
+    }
+
+    private static String toUntaggedLine(Frame frame) {
+        byte[] payload = frame.getPayload();
+        switch (frame.getOpcode()) {
+            case OP_TEXT:
+                return new String(payload, StandardCharsets.UTF_8);
+            case OP_MOVE_PLACE:
+                if (payload.length != 1) return "Error: Malformed movePlace frame";
+                return "movePlace " + rowOf(payload[0]) + " " + colOf(payload[0]);
+            case OP_MOVE_CHOOSE:
+                if (payload.length != 1) return "Error: Malformed moveChoose frame";
+                return "moveChoose " + payload[0];
+            case OP_PLAYERS:
+                return "getAllPlayers " + decodePlayers(payload);
+            default:
+                return "Error: Unknown opcode: " + frame.getOpcode();
+        }
+    }
+
+    public static int rowOf(byte square) {
+        return (square & 0x0F) >> 2;
+    }
+
+    public static int colOf(byte square) {
+        return square & 0x03;
+    }
+
+    /**
+     * Decodes a PLAYERS payload into the text form used by getAllPlayers:
+     * "username,winPercentage,gamesPlayed,ranking,wins,draws,losses;" per player.
+     * The counts and lengths in the payload are checked against its size before anything is allocated.
+     *
+     * @throws IllegalArgumentException if the payload is malformed
+     */
+    public static String decodePlayers(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        try {
+            int count = readVarInt(buffer);
+            if (count < 0 || count > buffer.remaining() / MIN_PLAYER_ROW_BYTES) {
+                throw new IllegalArgumentException("Malformed players payload: " + count + " rows in " + payload.length + " bytes");
+            }
+            return decodePlayerRows(buffer, count);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed players payload: truncated row", e);
+        }
+    }
+
+    private static String decodePlayerRows(ByteBuffer buffer, int count) {
+        StringBuilder sb = new StringBuilder(count * 32);
+        for (int i = 0; i < count; i++) {
+            int nameLength = readVarInt(buffer);
+            if (nameLength < 0 || nameLength > buffer.remaining()) {
+                throw new IllegalArgumentException("Malformed players payload: name of " + nameLength + " bytes");
+            }
+            byte[] name = new byte[nameLength];
+            buffer.get(name);
+            sb.append(new String(name, StandardCharsets.UTF_8))
+                    .append(",").append(buffer.getDouble())
+                    .append(",").append(readVarInt(buffer))
+                    .append(",").append(buffer.getDouble())
+                    .append(",").append(readVarInt(buffer))
+                    .append(",").append(readVarInt(buffer))
+                    .append(",").append(readVarInt(buffer))
+                    .append(";");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Builds the payload of a PLAYERS frame one row at a time.
+     */
+    public static class PlayersEncoder {
+        private final ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(rows);
+        private int count;
+
+        public PlayersEncoder add(String username, double winPercentage, int gamesPlayed,
+                                  double ranking, int wins, int draws, int losses) {
+            try {
+                byte[] name = username.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(out, name.length);
+                out.write(name);
+                out.writeDouble(winPercentage);
+                writeVarInt(out, gamesPlayed);
+                out.writeDouble(ranking);
+                writeVarInt(out, wins);
+                writeVarInt(out, draws);
+                writeVarInt(out, losses);
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // Cannot happen with an in-memory stream
+            }
+            count++;
+            return this;
+        }
+
+        public byte[] toPayload() {
+            byte[] body = rows.toByteArray();
+            byte[] payload = new byte[varIntSize(count) + body.length];
+            int pos = writeVarInt(payload, 0, count);
+            System.arraycopy(body, 0, payload, pos, body.length);
+            return payload;
+        }
+    }
+
+    // --- Varint helpers (unsigned LEB128) ---
+
+    static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int writeVarInt(byte[] target, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[pos++] = (byte) value;
+        return pos;
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0 && shift <= 28);
+        return value;
+    }
+
+    private static boolean isNibbleRange(int value, int bound) {
+        return value >= 0 && value < bound;
+    }
+}
@@ -0,0 +1,35 @@
+package common.protocol;
+
+/**
+ * A single decoded binary frame: an opcode, its payload and an optional request ID.
+ */
+public final class Frame {
+    /** Request ID of frames that are not part of a correlated request/response pair. */
+    public static final int NO_REQUEST_ID = -1;
+
+    private final byte opcode;
+    private final byte[] payload;
+    private final int requestId;
+
+    public Frame(byte opcode, byte[] payload) {
+        this(opcode, payload, NO_REQUEST_ID);
+    }
+
+    public Frame(byte opcode, byte[] payload, int requestId) {
+        this.opcode = opcode;
+        this.payload = payload;
+        this.requestId = requestId;
+    }
+
+    public byte getOpcode() {
+        return opcode;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int getRequestId() {
+        return requestId;
+    }
+}
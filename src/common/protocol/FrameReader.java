@@ -0,0 +1,132 @@
+package common.protocol;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads text lines or binary frames from one byte stream.
+ * Because both are read from the same buffered stream, a connection can switch
+ * from text to binary right after the handshake without losing any bytes.
+ */
+public class FrameReader implements Closeable {
+
+    private static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+    private static final int MAX_LINE_LENGTH = MAX_FRAME_LENGTH;
+    private static final int INITIAL_LINE_BUFFER = 256;
+    private static final int MAX_KEPT_LINE_BUFFER = 64 * 1024;   // A larger buffer is dropped after its line
+
+    private final InputStream in;
+    private byte[] lineBuffer = new byte[INITIAL_LINE_BUFFER];
+
+    /**
+     * @param in the stream to read from; should be buffered since it is read byte by byte
+     */
+    public FrameReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads one newline-terminated UTF-8 line.
+     * @return the line without its terminator, or null at end of stream
+     */
+    public String readLine() throws IOException {
+        int length = readLineBytes();
+        return (length < 0) ? null : new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads one newline-terminated line into the {@link #getLineBuffer() line buffer} without decoding it.
+     * @return the length of the line without its terminator, or -1 at end of stream
+     * @throws IOException also if the line is longer than the largest frame
+     */
+    public int readLineBytes() throws IOException {
+        if (lineBuffer.length > MAX_KEPT_LINE_BUFFER) {
+            // The previous line was unusually long; don't hold on to its buffer for the rest of the connection
+            lineBuffer = new byte[INITIAL_LINE_BUFFER];
+        }
+        int length = 0;
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (length == lineBuffer.length) {
+                if (length >= MAX_LINE_LENGTH) {
+                    lineBuffer = new byte[INITIAL_LINE_BUFFER];
+                    throw new IOException("Line longer than " + MAX_LINE_LENGTH + " bytes");
+                }
+                lineBuffer = Arrays.copyOf(lineBuffer, Math.min(length * 2, MAX_LINE_LENGTH));
+            }
+            lineBuffer[length++] = (byte) b;
+        }
+        if (b == -1 && length == 0) return -1;
+        if (length > 0 && lineBuffer[length - 1] == '\r') length--;
+        return length;
+    }
+
+    /**
+     * @return the bytes of the last line read by {@link #readLineBytes()}; overwritten by the next read
+     */
+    public byte[] getLineBuffer() {
+        return lineBuffer;
+    }
+
+    /**
+     * Reads one length-prefixed binary frame.
+     * @return the frame, or null at end of stream
+     */
+    public Frame readFrame() throws IOException {
+        int first = in.read();
+        if (first == -1) return null;
+        int length = readVarIntRest(first);
+        if (length < 1 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        int opcode = readByte();
+        int headerLength = 1;
+        int requestId = Frame.NO_REQUEST_ID;
+        if ((opcode & BinaryCodec.FLAG_CORRELATED) != 0) {
+            requestId = readVarIntRest(readByte());
+            headerLength += BinaryCodec.varIntSize(requestId);
+            opcode &= ~BinaryCodec.FLAG_CORRELATED;
+        }
+        if (length < headerLength) throw new IOException("Invalid frame length: " + length);
+        byte[] payload = new byte[length - headerLength];
+        readFully(payload);
+        return new Frame((byte) opcode, payload, requestId);
+    }
+
+    private int readVarIntRest(int first) throws IOException {
+        int value = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            if (shift > 28) throw new IOException("Varint too long");
+            b = readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b == -1) throw new EOFException("Stream ended inside a frame");
+        return b;
+    }
+
+    private void readFully(byte[] target) throws IOException {
+        int offset = 0;
+        while (offset < target.length) {
+            int n = in.read(target, offset, target.length - offset);
+            if (n == -1) throw new EOFException("Stream ended inside a frame");
+            offset += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
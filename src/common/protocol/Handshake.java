@@ -0,0 +1,71 @@
+package common.protocol;
+
+/**
+ * Protocol version negotiation shared by client and server.
+ *
+ * A client that supports negotiation sends {@code protocol <version> <format>} as its very first line.
+ * The server answers with {@code protocol <version> <format>} holding the agreed values, after which
+ * both sides switch to that format. Clients that never send the handshake stay on text version 1,
+ * and servers that do not know the command answer with an error, which the client treats as text version 1.
+ */
+public final class Handshake {
+
+    public static final String COMMAND = "protocol";
+
+    /** The original text-only protocol spoken by clients that do not negotiate. */
+    public static final int VERSION_LEGACY = 1;
+    /** Adds the binary wire format. */
+    public static final int VERSION_BINARY = 2;
+    /** Adds {@code @<id>} request tags echoed on responses, allowing pipelined requests. */
+    public static final int VERSION_CORRELATION = 3;
+    /** Highest version understood by this build. */
+    public static final int VERSION_CURRENT = VERSION_CORRELATION;
+
+    private final int version;
+    private final WireFormat format;
+
+    public Handshake(int version, WireFormat format) {
+        this.version = version;
+        this.format = format;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public WireFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the handshake line (without newline), used for both the offer and the answer
+     */
+    public String toLine() {
+        return COMMAND + " " + version + " " + format.wireName();
+    }
+
+    /**
+     * Parses a handshake line.
+     * @return the handshake, or null if the line is not a well-formed handshake
+     */
+    public static Handshake parse(String line) {
+        if (line == null) return null;
+        String[] parts = line.trim().split(" ");
+        if (parts.length < 3 || !COMMAND.equals(parts[0])) return null;
+        try {
+            return new Handshake(Integer.parseInt(parts[1]), WireFormat.fromName(parts[2]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Computes the server's answer to a client offer: the lower of both versions,
+     * and binary only if the agreed version supports it.
+     */
+    public Handshake negotiate(int serverVersion) {
+        int agreed = Math.max(VERSION_LEGACY, Math.min(version, serverVersion));
+        WireFormat agreedFormat = (agreed >= VERSION_BINARY) ? format : WireFormat.TEXT;
+        return new Handshake(agreed, agreedFormat);
+    }
+}
@@ -0,0 +1,42 @@
+package common.protocol;
+
+/**
+ * Outcome of the single round-trip {@code login} command.
+ */
+public enum LoginResult {
+    /** Existing user, password accepted. */
+    OK("ok"),
+    /** Unknown username, a new account was created with the given password. */
+    CREATED("created"),
+    /** Existing user, password rejected. */
+    WRONG_PASSWORD("wrong_password"),
+    /** The server could not complete the login (e.g. database unavailable). */
+    ERROR("error");
+
+    private final String wireName;
+
+    LoginResult(String wireName) {
+        this.wireName = wireName;
+    }
+
+    public String wireName() {
+        return wireName;
+    }
+
+    /**
+     * @return true if the user is logged in after this result
+     */
+    public boolean isAuthenticated() {
+        return this == OK || this == CREATED;
+    }
+
+    /**
+     * Parses the result token of a login response, mapping anything unknown to ERROR.
+     */
+    public static LoginResult fromWireName(String name) {
+        for (LoginResult result : values()) {
+            if (result.wireName.equals(name)) return result;
+        }
+        return ERROR;
+    }
+}
@@ -0,0 +1,22 @@
+package common.protocol;
+
+/**
+ * Encodings a connection can use after the protocol handshake.
+ */
+public enum WireFormat {
+    /** Newline-terminated, space-delimited text lines (the original protocol). */
+    TEXT,
+    /** Length-prefixed binary frames, see {@link BinaryCodec}. */
+    BINARY;
+
+    /**
+     * Parses a format name as sent in the handshake, falling back to TEXT for anything unknown.
+     */
+    public static WireFormat fromName(String name) {
+        return "binary".equalsIgnoreCase(name) ? BINARY : TEXT;
+    }
+
+    public String wireName() {
+        return name().toLowerCase();
+    }
+}
@@ -2,9 +2,45 @@ package server;
 
 import java.io.*;
 import java.net.*;
-import client.models.Player;
+import common.protocol.BinaryCodec;
+import common.protocol.Frame;
+import common.protocol.FrameReader;
+import common.protocol.Handshake;
+import common.protocol.LoginResult;
+import common.protocol.WireFormat;
+import server.db.ConnectionPool;
 import server.db.DBHelper;
+import server.db.DbExecutor;
+import server.db.GameResult;
+import server.db.JdbcPlayerRepository;
+import server.db.PlayerRepository;
+import server.db.ResultJournal;
+import server.db.TimedPlayerRepository;
+import server.history.GameHistory;
+import server.history.GameRecord;
+import server.leaderboard.Leaderboard;
+import server.log.Log;
+import server.metrics.Counter;
+import server.metrics.Histogram;
+import server.metrics.Metrics;
+import server.log.Logger;
+import server.leaderboard.LeaderboardFeed;
+import server.model.PlayerStats;
+import server.protocol.CommandLine;
+import server.protocol.CommandTable;
+import server.protocol.OutboundMessage;
+import server.protocol.OutboundQueue;
+import server.session.GameSession;
+import server.session.Participant;
+import server.session.SessionRegistry;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * TCPServer handles incoming client connections and manages game sessions.
@@ -12,204 +48,589 @@ import java.util.List;
  */
 public class TCPServer {
 
+    private static final Logger LOG = Log.get("server");
+    private static final Logger NET = Log.get("net");       // Connections and protocol traffic
+    private static final Logger GAME = Log.get("game");     // Matches, moves and results
+
     private static final int port = 1234;
-    private static ClientHandler waitingClient = null;     // Holds a single client waiting to be matched
+    private static volatile ClientHandler waitingClient = null;    // Holds a single client waiting to be matched
+    private static final Object MATCHMAKING_LOCK = new Object();    // Guards pairing with waitingClient
+    private static final SessionRegistry sessions = new SessionRegistry();
+    private static ResultJournal results;                  // Game results are journaled, then written to the DB in the background
+    private static DbExecutor database;                    // Runs DB calls off the connection threads
+    private static GameHistory history;                    // Finished games, stored in batches
+    static final Leaderboard leaderboard = new Leaderboard();           // Serves getAllPlayers without the DB (package-private for benchmarks)
+    private static final int MAX_LEADERBOARD_PAGE = 100;
+    private static final int MAX_LEADERBOARD_CHANGES = 1000;          // Beyond this a client reloads instead of patching
+    private static final LeaderboardFeed leaderboardFeed =              // Pushes leaderboard changes to subscribers
+            LeaderboardFeed.fromSystemProperties(leaderboard, MAX_LEADERBOARD_CHANGES);
+    private static final long CLOSE_DRAIN_MS = 1000;                   // How long a closing connection may spend flushing
+    private static final AtomicInteger ACTIVE_CONNECTIONS = new AtomicInteger();
+    private static final Counter CONNECTIONS_OPENED = Metrics.counter("net.connections.opened");
 
     public static void main(String[] args) {
+        PlayerRepository repository;
+        try {
+            repository = DBHelper.createFromSystemProperties();
+            DBHelper.configure(new TimedPlayerRepository(repository));     // Before the journal starts draining into it
+            results = ResultJournal.openDefault();
+        } catch (IOException e) {
+            LOG.error("Error opening player storage", e);
+            Log.flush();
+            return;
+        }
+        LOG.info("Database: {}", repository);
+        history = new GameHistory();
+        int dbThreads = (repository instanceof JdbcPlayerRepository jdbc) ? jdbc.getPool().getMaxSize() : 2;
+        database = DbExecutor.fromSystemProperties(dbThreads);
+        results.setListener(leaderboard::apply);
+        database.submit(() -> DBHelper.loadLeaderboard(leaderboard));
+        registerMetrics(repository);
+        int metricsPort = Integer.getInteger("quarto.metrics.port", 9404);
+        if (metricsPort >= 0) Metrics.startHttpEndpoint(metricsPort);
         new TCPServer().startServer();
     }
 
+    /**
+     * Registers the gauges that read server state; counters and timers are registered where they are updated.
+     */
+    private static void registerMetrics(PlayerRepository repository) {
+        Metrics.gauge("net.connections.active", ACTIVE_CONNECTIONS::get);
+        Metrics.gauge("game.sessions.active", sessions::size);
+        Metrics.gauge("game.waiting", () -> (waitingClient == null) ? 0 : 1);
+        Metrics.gauge("leaderboard.players", leaderboard::size);
+        Metrics.gauge("leaderboard.subscribers", leaderboardFeed::getSubscriberCount);
+        Metrics.gauge("log.dropped", Log::getDroppedCount);
+        if (repository instanceof JdbcPlayerRepository jdbc) {
+            ConnectionPool pool = jdbc.getPool();
+            Metrics.gauge("db.pool.active", pool::getActiveCount);
+            Metrics.gauge("db.pool.idle", pool::getIdleCount);
+            Metrics.gauge("db.pool.timeouts", pool::getTimeoutCount);
+            Metrics.gauge("db.pool.leaks", pool::getLeakCount);
+        }
+    }
+
     /**
      * Starts the TCP server on the specified port and listens for clients.
      */
     public void startServer() {
         try (ServerSocket serverSocket = new ServerSocket(port)) {
-            System.out.println("TCPServer is listening on port " + port);
+            LOG.info("TCPServer is listening on port {}", port);
             while (true) {
                 Socket clientSocket = serverSocket.accept();
-                System.out.println("Accepted connection from " + clientSocket.getInetAddress());
-                new Thread(new ClientHandler(clientSocket)).start();
+                clientSocket.setTcpNoDelay(true);     // Moves are tiny and latency-bound; never wait to coalesce them
+                NET.info("Accepted connection from {}", clientSocket.getRemoteSocketAddress());
+                CONNECTIONS_OPENED.increment();
+                new Thread(new ClientHandler(clientSocket), "client-" + clientSocket.getRemoteSocketAddress()).start();
             }
         } catch (IOException e) {
-            System.err.println("Error starting server: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error starting server", e);
+            Log.flush();
         }
     }
 
     /**
      * Handles individual client sessions, including authentication, gameplay, and messaging.
+     * Package-private so the protocol benchmarks can drive it directly.
      */
-    private static class ClientHandler implements Runnable {
+    static class ClientHandler implements Runnable, Participant {
+        private static final int CMD_MOVE_PLACE = 1;
+        private static final int CMD_MOVE_CHOOSE = 2;
+        private static final int CMD_CHAT = 3;
+        private static final CommandTable RELAY_COMMANDS = new CommandTable(3)
+                .register("movePlace", CMD_MOVE_PLACE)
+                .register("moveChoose", CMD_MOVE_CHOOSE)
+                .register("chat", CMD_CHAT);
+
+        // Handling time per command; the relay commands are looked up once here
+        private static final Map<String, Histogram> COMMAND_TIMES = new ConcurrentHashMap<>();
+        private static final Histogram MOVE_PLACE_TIME = commandTimer("movePlace");
+        private static final Histogram MOVE_CHOOSE_TIME = commandTimer("moveChoose");
+        private static final Histogram CHAT_TIME = commandTimer("chat");
+
         private Socket clientSocket;
-        private BufferedReader input;
-        private PrintWriter output;
-        private String username;
-        private ClientHandler opponent;
+        private FrameReader input;
+        private OutboundQueue output;              // Written by the connection's own writer thread
+        private volatile WireFormat format = WireFormat.TEXT;   // Switched by the protocol handshake
+        private volatile String username;          // Also set from DB callbacks
+        private volatile boolean authenticated;    // The password for username was checked
+        private volatile GameSession session;      // Game this client is playing in
+        private volatile GameSession spectating;   // Game this client is watching
+        private final CommandLine line = new CommandLine();     // Reused for every received text line
+        private String chatPrefixName;             // The username chatPrefix was built for (read loop only)
+        private byte[] chatPrefix;                 // "chat <username>: " in UTF-8
 
         public ClientHandler(Socket socket) {
             this.clientSocket = socket;
             try {
-                input = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-                output = new PrintWriter(clientSocket.getOutputStream(), true);
+                input = new FrameReader(new BufferedInputStream(clientSocket.getInputStream()));
+                output = OutboundQueue.fromSystemProperties(clientSocket.getOutputStream(),
+                        String.valueOf(clientSocket.getRemoteSocketAddress()), this::abort);
             } catch (IOException e) {
-                System.err.println("Error initializing client handler: " + e.getMessage());
+                NET.warn("Error initializing client handler: {}", e.getMessage());
             }
         }
 
         @Override
         public void run() {
-            String clientMessage;
+            ACTIVE_CONNECTIONS.incrementAndGet();
             try {
-                while ((clientMessage = input.readLine()) != null) {
-                    System.out.println("Received: " + clientMessage);
-                    processCommand(clientMessage);
+                while (true) {
+                    if (format == WireFormat.BINARY) {
+                        Frame frame = input.readFrame();
+                        if (frame == null) break;
+                        processFrame(frame);
+                    } else {
+                        int length = input.readLineBytes();
+                        if (length < 0) break;
+                        byte[] received = input.getLineBuffer();
+                        if (!relay(received, length)) {
+                            String clientMessage = new String(received, 0, length, StandardCharsets.UTF_8);
+                            NET.debug("Received: {}", clientMessage);
+                            processCommand(clientMessage);
+                        }
+                    }
                 }
             } catch (IOException e) {
-                System.out.println("Connection with client " + clientSocket.getInetAddress() + " closed.");
+                NET.info("Connection with client {} closed.", clientSocket.getRemoteSocketAddress());
             } finally {
                 closeConnection();
+                ACTIVE_CONNECTIONS.decrementAndGet();
+            }
+        }
+
+        /**
+         * Processes a binary frame. Moves are relayed without going through text; a TEXT frame is
+         * handled exactly like the equivalent text command. Clients send no other opcodes, so any
+         * other frame is answered with an error without decoding its payload.
+         */
+        private void processFrame(Frame frame) {
+            long start = System.nanoTime();
+            byte[] payload = frame.getPayload();
+            switch (frame.getOpcode()) {
+                case BinaryCodec.OP_MOVE_PLACE:
+                    if (payload.length == 1 && session != null) {
+                        int row = BinaryCodec.rowOf(payload[0]);
+                        int col = BinaryCodec.colOf(payload[0]);
+                        session.getMoves().place(row, col);
+                        session.publish(this, OutboundMessage.movePlace(row, col));
+                    }
+                    MOVE_PLACE_TIME.recordSince(start);
+                    break;
+
+                case BinaryCodec.OP_MOVE_CHOOSE:
+                    if (payload.length == 1 && session != null) {
+                        session.getMoves().choose(payload[0] & 0x0F);
+                        session.publish(this, OutboundMessage.moveChoose(payload[0] & 0x0F));
+                    }
+                    MOVE_CHOOSE_TIME.recordSince(start);
+                    break;
+
+                case BinaryCodec.OP_TEXT:
+                    String line = BinaryCodec.toLine(frame);
+                    NET.debug("Received: {}", line);
+                    processCommand(line);
+                    break;
+
+                default:
+                    reply(frame.getRequestId(), "Error: Unknown opcode: " + frame.getOpcode());
+                    break;
+            }
+        }
+
+        /**
+         * Handles the high-volume relay commands (moves and chat) straight from the received bytes.
+         * A well-formed move is forwarded as one of the shared pre-encoded move messages, so relaying
+         * it allocates nothing. Chat is forwarded as its raw bytes behind a cached prefix, one array
+         * per message. Anything else, including malformed moves, is left to processCommand.
+         *
+         * @return true if the line was handled
+         */
+        boolean relay(byte[] received, int length) {
+            long start = System.nanoTime();
+            if (!line.parse(received, length)) return false;
+            GameSession current = session;
+            switch (line.command(RELAY_COMMANDS)) {
+                case CMD_MOVE_PLACE: {
+                    int row = line.intAt(1);
+                    int col = line.intAt(2);
+                    if (line.size() != 3 || row > 3 || col > 3 || row < 0 || col < 0) return false;
+                    if (current != null) {
+                        current.getMoves().place(row, col);
+                        current.publish(this, OutboundMessage.movePlace(row, col));
+                    }
+                    MOVE_PLACE_TIME.recordSince(start);
+                    return true;
+                }
+                case CMD_MOVE_CHOOSE: {
+                    int piece = line.intAt(1);
+                    if (line.size() != 2 || piece < 0 || piece > 15) return false;
+                    if (current != null) {
+                        current.getMoves().choose(piece);
+                        current.publish(this, OutboundMessage.moveChoose(piece));
+                    }
+                    MOVE_CHOOSE_TIME.recordSince(start);
+                    return true;
+                }
+                case CMD_CHAT:
+                    if (current != null) {
+                        current.publish(this, OutboundMessage.ofSheddable(chatPrefix(), line, 1));
+                    }
+                    CHAT_TIME.recordSince(start);
+                    return true;
+                default:
+                    return false;
             }
         }
 
+        /**
+         * @return the bytes of "chat &lt;username&gt;: ", rebuilt only when the username changes
+         */
+        private byte[] chatPrefix() {
+            String name = username;
+            if (chatPrefix == null || !Objects.equals(name, chatPrefixName)) {
+                chatPrefix = ("chat " + name + ": ").getBytes(StandardCharsets.UTF_8);
+                chatPrefixName = name;
+            }
+            return chatPrefix;
+        }
+
         /**
          * Processes client messages by dispatching commands and managing gameplay actions.
          */
-        private void processCommand(String message) {
+        void processCommand(String message) {
+            int requestId = Frame.NO_REQUEST_ID;
+            if (message.startsWith("@")) { // Correlated request: "@<id> <command> ..."
+                int space = message.indexOf(' ');
+                try {
+                    requestId = Integer.parseInt(message.substring(1, space < 0 ? message.length() : space));
+                } catch (NumberFormatException e) {
+                    sendMessage("Error: Malformed request tag.");
+                    return;
+                }
+                message = (space < 0) ? "" : message.substring(space + 1);
+            }
+            processCommand(requestId, message);
+        }
+
+        private static Histogram commandTimer(String command) {
+            return COMMAND_TIMES.computeIfAbsent(command, name -> Metrics.histogram("command." + name));
+        }
+
+        /**
+         * Dispatches a single command and records how long handling it took.
+         */
+        private void processCommand(int requestId, String message) {
+            long start = System.nanoTime();
             String[] parts = message.split(" ");
+            boolean known = dispatch(requestId, message, parts);
+            // Unknown names share one histogram, so clients cannot create metrics at will
+            commandTimer(known ? parts[0] : "unknown").recordSince(start);
+        }
+
+        /**
+         * Handles a single command; replies carry the request ID if there is one.
+         *
+         * @return false if the command is unknown
+         */
+        private boolean dispatch(int requestId, String message, String[] parts) {
             String command = parts[0];
 
             switch (command) {
+                case Handshake.COMMAND:
+                    Handshake offer = Handshake.parse(message);
+                    if (offer == null) {
+                        reply(requestId, "protocol Error: Malformed handshake.");
+                        break;
+                    }
+                    Handshake answer = offer.negotiate(Handshake.VERSION_CURRENT);
+                    reply(requestId, answer.toLine()); // Answer in the old format, then switch
+                    format = answer.getFormat();
+                    break;
+
                 case "isNameExistInDB":
                     if (parts.length < 2) {
-                        output.println("isNameExistInDB Error: Missing username.");
+                        reply(requestId, "isNameExistInDB Error: Missing username.");
                         break;
                     }
                     String name = parts[1];
-                    boolean exists = DBHelper.userExists(name);
+                    if (!isValidUsername(name)) {
+                        reply(requestId, "isNameExistInDB Error: Username too long.");
+                        break;
+                    }
                     this.username = name;
-                    output.println("isNameExistInDB " + exists);
+                    this.authenticated = false;
+                    withDatabase(requestId, () -> DBHelper.userExists(name),
+                            exists -> reply(requestId, "isNameExistInDB " + exists));
                     break;
 
                 case "isPasswordCorrect":
                     if (this.username == null) {
-                        output.println("isPasswordCorrect Error: Username not set.");
+                        reply(requestId, "isPasswordCorrect Error: Username not set.");
                     } else if (parts.length < 2) {
-                        output.println("isPasswordCorrect Error: Missing password.");
+                        reply(requestId, "isPasswordCorrect Error: Missing password.");
                     } else {
+                        String user = this.username;
                         String password = parts[1];
-                        boolean correct = DBHelper.checkPassword(this.username, password);
-                        output.println("isPasswordCorrect " + correct);
+                        withDatabase(requestId, () -> DBHelper.checkPassword(user, password), correct -> {
+                            if (correct && user.equals(this.username)) this.authenticated = true;
+                            reply(requestId, "isPasswordCorrect " + correct);
+                        });
                     }
                     break;
 
                 case "registerUser":
                     if (parts.length < 3) {
-                        output.println("registerUser Error: Missing username or password.");
+                        reply(requestId, "registerUser Error: Missing username or password.");
+                    } else if (!isValidUsername(parts[1])) {
+                        reply(requestId, "registerUser Error: Username too long.");
                     } else {
                         String regUsername = parts[1];
                         String regPassword = parts[2];
-                        boolean registered = DBHelper.registerUser(regUsername, regPassword);
-                        if (registered) {
-                            this.username = regUsername;
-                            output.println("registerUser success");
-                        } else {
-                            output.println("registerUser failed");
-                        }
+                        withDatabase(requestId, () -> DBHelper.registerUser(regUsername, regPassword), registered -> {
+                            if (registered) {
+                                this.username = regUsername;
+                                this.authenticated = true;
+                                leaderboard.addPlayer(regUsername);
+                                reply(requestId, "registerUser success");
+                            } else {
+                                reply(requestId, "registerUser failed");
+                            }
+                        });
                     }
                     break;
 
+                case "login":
+                    if (parts.length < 3) {
+                        reply(requestId, "login Error: Missing username or password.");
+                        break;
+                    }
+                    if (!isValidUsername(parts[1])) {
+                        reply(requestId, "login Error: Username too long.");
+                        break;
+                    }
+                    String loginName = parts[1];
+                    String loginPassword = parts[2];
+                    withDatabase(requestId, () -> DBHelper.login(loginName, loginPassword), loginResult -> {
+                        if (loginResult.isAuthenticated()) {
+                            this.username = loginName;
+                            this.authenticated = true;
+                        }
+                        if (loginResult == LoginResult.CREATED) {
+                            leaderboard.addPlayer(loginName);
+                        }
+                        reply(requestId, "login " + loginResult.wireName());
+                    });
+                    break;
+
                 case "getAllPlayers":
-                    List<Player> playersList = DBHelper.getAllPlayers();
-                    StringBuilder responseBuilder = new StringBuilder();
-                    for (Player player : playersList) {
-                        responseBuilder.append(player.getUsername())
-                                .append(",").append(player.getWinPercentage())
-                                .append(",").append(player.getGamesPlayed())
-                                .append(",").append(player.getRanking())
-                                .append(",").append(player.getWins())
-                                .append(",").append(player.getDraws())
-                                .append(",").append(player.getLosses())
-                                .append(";");
+                    withLeaderboard(requestId, () -> sendPlayers(requestId, leaderboard.snapshot()));
+                    break;
+
+                case "leaderboardTop": {
+                    int count = parsePageSize(parts, 1);
+                    withLeaderboard(requestId, () -> sendLeaderboardPage(requestId, command, leaderboard.top(count)));
+                    break;
+                }
+
+                case "leaderboardPage": {
+                    Leaderboard.Cursor cursor = (parts.length > 1) ? Leaderboard.Cursor.parse(parts[1]) : null;
+                    if (cursor == null) {
+                        reply(requestId, "leaderboardPage Error: Missing or malformed cursor.");
+                        break;
+                    }
+                    int count = parsePageSize(parts, 2);
+                    withLeaderboard(requestId, () -> sendLeaderboardPage(requestId, command, leaderboard.after(cursor, count)));
+                    break;
+                }
+
+                case "leaderboardAround": {
+                    String target = (parts.length > 1) ? parts[1] : username;
+                    if (target == null) {
+                        reply(requestId, "leaderboardAround Error: Missing username.");
+                        break;
+                    }
+                    int radius = parsePageSize(parts, 2) / 2;
+                    withLeaderboard(requestId, () -> sendLeaderboardPage(requestId, command, leaderboard.around(target, radius)));
+                    break;
+                }
+
+                case "leaderboardChanges": {
+                    // leaderboardChanges <epoch> <version>, both "-" for a client with no copy yet
+                    long epoch = parseLongOrZero(parts, 1);
+                    long since = (parts.length > 2 && !parts[2].equals("-")) ? parseLongOrZero(parts, 2) : -1;
+                    withLeaderboard(requestId, () -> sendLeaderboardChanges(requestId,
+                            leaderboard.changesSince(epoch, since, MAX_LEADERBOARD_CHANGES)));
+                    break;
+                }
+
+                case "subscribeLeaderboard": {
+                    // subscribeLeaderboard <epoch> <version>: push leaderboardUpdate lines for changes after that version
+                    long epoch = parseLongOrZero(parts, 1);
+                    long since = (parts.length > 2 && !parts[2].equals("-")) ? parseLongOrZero(parts, 2) : -1;
+                    leaderboardFeed.subscribe(this, epoch, since);
+                    reply(requestId, "subscribeLeaderboard ok");
+                    break;
+                }
+
+                case "unsubscribeLeaderboard":
+                    leaderboardFeed.unsubscribe(this);
+                    break;
+
+                case "gameHistory": {
+                    // gameHistory [username] [beforeId] [count]
+                    String player = (parts.length > 1) ? parts[1] : username;
+                    if (player == null) {
+                        reply(requestId, "gameHistory Error: Missing username.");
+                        break;
                     }
-                    output.println("getAllPlayers " + responseBuilder.toString());
+                    long beforeId = parseBeforeId(parts, 2);
+                    int count = parsePageSize(parts, 3);
+                    withDatabase(requestId, () -> DBHelper.getRepository().getGames(player, beforeId, count),
+                            games -> sendGames(requestId, command, games, count));
                     break;
+                }
+
+                case "headToHead": {
+                    // headToHead <username> <username> [beforeId] [count]
+                    if (parts.length < 3) {
+                        reply(requestId, "headToHead Error: Missing usernames.");
+                        break;
+                    }
+                    String player1 = parts[1];
+                    String player2 = parts[2];
+                    long beforeId = parseBeforeId(parts, 3);
+                    int count = parsePageSize(parts, 4);
+                    withDatabase(requestId, () -> DBHelper.getRepository().getHeadToHead(player1, player2, beforeId, count),
+                            games -> sendGames(requestId, command, games, count));
+                    break;
+                }
 
                 case "startOnlineGame":
-                    if (this.username == null && parts.length >= 2) {
+                    if (this.username == null && parts.length >= 2 && isValidUsername(parts[1])) {
                         this.username = parts[1];
                     }
+                    leaveSession();
 
-                    if (waitingClient == null || waitingClient.equals(this)) {
-                        waitingClient = this;
-                        output.println("startOnlineGameWait Waiting for opponent...");
-                    } else {
-                        ClientHandler opponentClient = this;
-                        startSession(waitingClient, opponentClient);
-                        waitingClient = null;
+                    // Two clients joining at once must not both be paired with the same waiting client
+                    synchronized (MATCHMAKING_LOCK) {
+                        if (waitingClient == null || waitingClient.equals(this)) {
+                            waitingClient = this;
+                            sendMessage("startOnlineGameWait Waiting for opponent...");
+                        } else {
+                            startSession(waitingClient, this);
+                            waitingClient = null;
+                        }
                     }
                     break;
 
                 case "movePlace":
-                    if (opponent != null) {
-                        opponent.sendMessage("movePlace " + joinParts(parts, 1));
+                    if (session != null) {
+                        if (parts.length >= 3) {
+                            try {
+                                session.getMoves().place(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                            } catch (NumberFormatException ignored) {
+                                // Relayed as-is; only well-formed moves are kept in the history
+                            }
+                        }
+                        session.publish(this, OutboundMessage.of("movePlace " + joinParts(parts, 1)));
                     }
                     break;
 
                 case "moveChoose":
-                    if (opponent != null) {
-                        opponent.sendMessage("moveChoose " + joinParts(parts, 1));
+                    if (session != null) {
+                        if (parts.length >= 2) {
+                            try {
+                                session.getMoves().choose(Integer.parseInt(parts[1]));
+                            } catch (NumberFormatException ignored) {
+                                // Relayed as-is; only well-formed moves are kept in the history
+                            }
+                        }
+                        session.publish(this, OutboundMessage.of("moveChoose " + joinParts(parts, 1)));
                     }
                     break;
 
                 case "iWonGame":
 
-                    System.out.println("iWonGame called for username: " + this.username);
+                    GAME.debug("iWonGame called for username: {}", this.username);
 
-                    boolean isWinUpdated = DBHelper.updateWin(this.username);
-                    System.out.println("Server: [" + username + "] registered WIN: " + isWinUpdated);
-                    output.println("iWonGame " + (isWinUpdated ? "success" : "failed"));
+                    endGame(session, this.username, false);
+                    recordResult(requestId, "iWonGame", GameResult.WIN);
                     break;
 
                 case "iLossGame":
-                    if (opponent == null) {
-                        System.out.println("Skipping loss registration – no opponent yet.");
+                    if (opponent() == null) {
+                        GAME.info("Skipping loss registration – no opponent yet.");
                         break;
                     }
-                    boolean isLossUpdated = DBHelper.updateLoss(this.username);
-                    System.out.println("Server: [" + username + "] registered LOSS: " + isLossUpdated);
-                    output.println("iLossGame " + (isLossUpdated ? "success" : "failed"));
+                    endGame(session, opponent().getUsername(), false);
+                    recordResult(requestId, "iLossGame", GameResult.LOSS);
                     break;
 
                 case "iDrawGame":
-                    boolean isDrawUpdated = DBHelper.updateDraw(this.username);
-                    System.out.println("Server: [" + username + "] registered DRAW: " + isDrawUpdated);
-                    output.println("iDrawGame " + (isDrawUpdated ? "success" : "failed"));
+                    endGame(session, null, false);
+                    recordResult(requestId, "iDrawGame", GameResult.DRAW);
                     break;
 
                 case "disconnect":
-                    System.out.println(username + " disconnected via command.");
+                    NET.info("{} disconnected via command.", username);
                     closeConnection();
                     break;
 
                 case "chat":
-                    if (opponent != null) {
+                    if (session != null) {
                         String chatMessage = joinParts(parts, 1);
-                        opponent.sendMessage("chat " + username + ": " + chatMessage);
+                        session.publish(this, OutboundMessage.ofSheddable("chat " + username + ": " + chatMessage));
+                    }
+                    break;
+
+                case "listSessions":
+                    StringBuilder sessionsBuilder = new StringBuilder();
+                    for (GameSession running : sessions.activeSessions()) {
+                        sessionsBuilder.append(running.getId())
+                                .append(",").append(running.getPlayer1().getUsername())
+                                .append(",").append(running.getPlayer2().getUsername())
+                                .append(",").append(running.getSpectatorCount())
+                                .append(";");
                     }
+                    reply(requestId, "listSessions " + sessionsBuilder);
+                    break;
+
+                case "spectate":
+                    GameSession target = null;
+                    if (parts.length >= 2) {
+                        try {
+                            target = sessions.get(Long.parseLong(parts[1]));
+                        } catch (NumberFormatException ignored) {}
+                    }
+                    stopSpectating();
+                    if (target != null && target.addSpectator(this)) {
+                        spectating = target;
+                        reply(requestId, "spectate ok " + target.getId() + " "
+                                + target.getPlayer1().getUsername() + " " + target.getPlayer2().getUsername());
+                    } else {
+                        reply(requestId, "spectate failed");
+                    }
+                    break;
+
+                case "stopSpectating":
+                    stopSpectating();
                     break;
 
                 case "opponentWonByQuit":
+                    ClientHandler opponent = opponent();
                     if (opponent != null) {
-                        opponent.output.println("opponentLeft"); // ✅ שינוי כאן!
+                        opponent.sendMessage("opponentLeft");
 
                     }
                     break;
 
                 default:
-                    output.println("Error: Unknown command: " + command);
-                    break;
+                    reply(requestId, "Error: Unknown command: " + command);
+                    return false;
 
             }
+            return true;
         }
 
         /**
@@ -229,27 +650,275 @@ public class TCPServer {
          */
         private void startSession(ClientHandler client1, ClientHandler client2) {
             try {
-                client1.opponent = client2;
-                client2.opponent = client1;
+                GameSession newSession = sessions.create(client1, client2);
+                client1.session = newSession;
+                client2.session = newSession;
                 boolean player1Starts = Math.random() < 0.5;
+                newSession.setFirstMover(player1Starts ? client1 : client2);
                 if (player1Starts) {
-                    client1.output.println("startOnlineGameMyTurn Match found! You are Player 1");
-                    client2.output.println("startOnlineGameWait Match found! You are Player 2");
+                    client1.sendMessage("startOnlineGameMyTurn Match found! You are Player 1");
+                    client2.sendMessage("startOnlineGameWait Match found! You are Player 2");
                 } else {
-                    client1.output.println("startOnlineGameWait Match found! You are Player 1");
-                    client2.output.println("startOnlineGameMyTurn Match found! You are Player 2");
+                    client1.sendMessage("startOnlineGameWait Match found! You are Player 1");
+                    client2.sendMessage("startOnlineGameMyTurn Match found! You are Player 2");
                 }
 
             } catch (Exception e) {
-                System.out.println("client.game session failed: " + e.getMessage());
+                GAME.error("Starting game session failed", e);
+            }
+        }
+
+        /**
+         * @return the other player of the current session, or null if not in a game
+         */
+        private ClientHandler opponent() {
+            GameSession current = session;
+            return (current == null) ? null : (ClientHandler) current.opponentOf(this);
+        }
+
+        /**
+         * Runs a database call on the DB executor and hands the result back to this connection.
+         * If the database is saturated the client gets an immediate busy error instead of waiting.
+         */
+        private <T> void withDatabase(int requestId, Callable<T> call, Consumer<T> onResult) {
+            database.submit(call).whenComplete((value, error) -> {
+                if (error == null) {
+                    onResult.accept(value);
+                } else if (DbExecutor.isBusy(error)) {
+                    reply(requestId, "Error: Server busy, try again.");
+                } else {
+                    GAME.warn("Database call failed for {}: {}", username, error);
+                    reply(requestId, "Error: Database error.");
+                }
+            });
+        }
+
+        /**
+         * Runs a leaderboard read, first loading the leaderboard on the DB executor if that has not
+         * happened yet (e.g. the DB was down at startup).
+         */
+        private void withLeaderboard(int requestId, Runnable read) {
+            if (leaderboard.isLoaded()) {
+                read.run();
+            } else {
+                withDatabase(requestId, () -> DBHelper.loadLeaderboard(leaderboard), loaded -> read.run());
+            }
+        }
+
+        /**
+         * @return the page size at the given argument, defaulting to and capped at {@link #MAX_LEADERBOARD_PAGE}
+         */
+        private static int parsePageSize(String[] parts, int index) {
+            if (parts.length <= index) return MAX_LEADERBOARD_PAGE;
+            try {
+                return Math.max(1, Math.min(MAX_LEADERBOARD_PAGE, Integer.parseInt(parts[index])));
+            } catch (NumberFormatException e) {
+                return MAX_LEADERBOARD_PAGE;
+            }
+        }
+
+        private static long parseLongOrZero(String[] parts, int index) {
+            if (parts.length <= index) return 0;
+            try {
+                return Long.parseLong(parts[index]);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        /**
+         * @return the game id to page back from at the given argument; the most recent games if absent or "-"
+         */
+        private static long parseBeforeId(String[] parts, int index) {
+            if (parts.length <= index) return Long.MAX_VALUE;
+            try {
+                return Long.parseLong(parts[index]);
+            } catch (NumberFormatException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+
+        /**
+         * Sends a page of games: {@code <command> <nextBeforeId or -> <games>}, games separated by ';'
+         * in the {@link GameRecord#toWire()} format, newest first.
+         */
+        private void sendGames(int requestId, String command, List<GameRecord> games, int pageSize) {
+            StringBuilder responseBuilder = new StringBuilder(command).append(' ');
+            responseBuilder.append(games.size() < pageSize ? "-" : String.valueOf(games.get(games.size() - 1).id()));
+            responseBuilder.append(' ');
+            for (GameRecord game : games) {
+                responseBuilder.append(game.toWire()).append(';');
+            }
+            reply(requestId, responseBuilder.toString());
+        }
+
+        /**
+         * Sends a leaderboard page:
+         * {@code <command> <myRank> <firstRank> <total> <nextCursor or -> <rows>}, where myRank is
+         * this client's rank (0 if unknown) and rows use the getAllPlayers format.
+         */
+        private void sendLeaderboardPage(int requestId, String command, Leaderboard.Page page) {
+            int myRank = (username == null) ? 0 : leaderboard.rankOf(username);
+            Leaderboard.Cursor next = page.getNextCursor();
+            StringBuilder responseBuilder = new StringBuilder(command)
+                    .append(' ').append(myRank)
+                    .append(' ').append(page.getFirstRank())
+                    .append(' ').append(page.getTotal())
+                    .append(' ').append(next == null ? "-" : next.toString())
+                    .append(' ');
+            for (PlayerStats player : page.getEntries()) {
+                player.appendWire(responseBuilder);
+            }
+            reply(requestId, responseBuilder.toString());
+        }
+
+        /**
+         * Sends leaderboard changes: {@code leaderboardChanges <epoch> <version> delta|reset <rows>},
+         * where rows are the changed players in the getAllPlayers format (none on a reset).
+         */
+        private void sendLeaderboardChanges(int requestId, Leaderboard.Changes changes) {
+            StringBuilder responseBuilder = new StringBuilder("leaderboardChanges ");
+            changes.appendWire(responseBuilder);
+            reply(requestId, responseBuilder.toString());
+        }
+
+        /**
+         * Sends the players table, as a PLAYERS frame on binary connections or a CSV line otherwise.
+         */
+        private void sendPlayers(int requestId, List<PlayerStats> playersList) {
+            if (format == WireFormat.BINARY) {
+                send(OutboundMessage.ofFrame(new Frame(BinaryCodec.OP_PLAYERS, encodePlayers(playersList), requestId)));
+                return;
             }
+            reply(requestId, playersLine(playersList));
+        }
+
+        /**
+         * @return the payload of a PLAYERS frame
+         */
+        static byte[] encodePlayers(List<PlayerStats> playersList) {
+            BinaryCodec.PlayersEncoder encoder = new BinaryCodec.PlayersEncoder();
+            for (PlayerStats player : playersList) {
+                encoder.add(player.username(), player.winPercentage(), player.gamesPlayed(),
+                        player.ranking(), player.wins(), player.draws(), player.losses());
+            }
+            return encoder.toPayload();
+        }
+
+        /**
+         * @return the getAllPlayers text response
+         */
+        static String playersLine(List<PlayerStats> playersList) {
+            StringBuilder responseBuilder = new StringBuilder("getAllPlayers ");
+            for (PlayerStats player : playersList) {
+                player.appendWire(responseBuilder);
+            }
+            return responseBuilder.toString();
+        }
+
+        /**
+         * Journals a game result for this client and replies once it is durable.
+         * The database itself is updated in the background, off this connection's thread.
+         * Only a logged-in client has results recorded.
+         */
+        private void recordResult(int requestId, String command, GameResult result) {
+            String player = username;
+            if (player == null || !authenticated) {
+                reply(requestId, command + " Error: Not logged in.");
+                return;
+            }
+            results.append(player, result).whenComplete((ignored, error) -> {
+                GAME.info("[{}] registered {}: {}", player, result, error == null);
+                reply(requestId, command + " " + (error == null ? "success" : "failed"));
+            });
+        }
+
+        /**
+         * @return true if the name fits the username column of the schema
+         */
+        private static boolean isValidUsername(String name) {
+            return name.length() <= PlayerRepository.MAX_USERNAME_LENGTH;
+        }
+
+        /**
+         * Ends a game and queues it for the game history. Only the first report of a game's end counts.
+         *
+         * @param winner    the winner's name, or null for a draw or an abandoned game
+         * @param abandoned true if the game ended without a result
+         */
+        private void endGame(GameSession game, String winner, boolean abandoned) {
+            if (game == null || !sessions.end(game)) return;
+            Participant first = (game.getFirstMover() != null) ? game.getFirstMover() : game.getPlayer1();
+            Participant second = game.opponentOf(first);
+            if (first.getUsername() == null || second == null || second.getUsername() == null) return;
+            history.record(GameRecord.of(first.getUsername(), second.getUsername(), winner, abandoned,
+                    game.getStartedAt(), System.currentTimeMillis(), game.getMoves().encode()));
+        }
+
+        /**
+         * Detaches this client from its previous game, if any.
+         */
+        private void leaveSession() {
+            GameSession previous = session;
+            if (previous != null) {
+                endGame(previous, null, true);   // No-op if the game was already reported as finished
+                session = null;
+            }
+        }
+
+        /**
+         * Stops watching the current spectated game, if any.
+         */
+        private void stopSpectating() {
+            GameSession watched = spectating;
+            if (watched != null) {
+                watched.removeSpectator(this);
+                spectating = null;
+            }
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        /**
+         * Queues an already-encoded message for the connected client. Never blocks on the socket.
+         */
+        @Override
+        public void send(OutboundMessage message) {
+            if (output == null) return;
+            output.send(message, format);
+        }
+
+        @Override
+        public boolean isBehind() {
+            return output != null && output.isBehind();
+        }
+
+        /**
+         * Drops a client that stopped reading, or whose writer failed; the read loop then ends and cleans up as usual.
+         */
+        private void abort() {
+            try {
+                clientSocket.close();
+            } catch (IOException e) {
+                NET.warn("Error closing connection: {}", e.getMessage());
+            }
+        }
+
+        /**
+         * Sends a response line, tagged with the request ID if the request carried one.
+         */
+        private void reply(int requestId, String message) {
+            sendMessage(requestId == Frame.NO_REQUEST_ID ? message : "@" + requestId + " " + message);
         }
 
         /**
          * Sends a text message to the connected client.
          */
         public void sendMessage(String message) {
-            if (output != null) output.println(message);
+            send(OutboundMessage.of(message));
         }
 
         /**
@@ -257,24 +926,30 @@ public class TCPServer {
          */
         private void closeConnection() {
             try {
-                System.out.println("Closing connection for " + username);
-                if (this == waitingClient) waitingClient = null;
-
-
-                if (opponent != null) {
-                    System.out.println("Disconnecting: Notifying opponentLeft");
+                NET.info("Closing connection for {}", username);
+                synchronized (MATCHMAKING_LOCK) {
+                    if (this == waitingClient) waitingClient = null;
+                }
+                stopSpectating();
+                leaderboardFeed.unsubscribe(this);
+
+                GameSession current = session;
+                ClientHandler opponent = opponent();
+                // Only notify an opponent that is still in this game, not one that moved on to a new match
+                if (opponent != null && opponent.session == current) {
+                    NET.debug("Disconnecting: Notifying opponentLeft");
                     opponent.sendMessage("opponentLeft");
-                    opponent.opponent = null;
-                    this.opponent = null;
+                    opponent.session = null;
                 } else {
-                    System.out.println("Disconnecting: No opponent to notify.");
+                    NET.debug("Disconnecting: No opponent to notify.");
                 }
+                leaveSession();
 
+                if (output != null) output.close(CLOSE_DRAIN_MS);   // Let queued replies go out first
                 if (input != null) input.close();
-                if (output != null) output.close();
                 if (clientSocket != null) clientSocket.close();
             } catch (IOException e) {
-                System.err.println("Error closing connection: " + e.getMessage());
+                NET.warn("Error closing connection: {}", e.getMessage());
             }
         }
     }
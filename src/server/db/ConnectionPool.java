@@ -0,0 +1,307 @@
+package server.db;
+
+import server.log.Log;
+import server.log.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of JDBC connections.
+ *
+ * Callers borrow a connection with {@link #getConnection()} and give it back by closing it,
+ * so existing try-with-resources code keeps working unchanged. Connections that sat idle for a
+ * while are validated before being handed out, long-idle ones are closed in the background,
+ * and connections held past the leak threshold are reported together with the borrower's stack.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger LOG = Log.get("db");
+
+    private final PoolConfig config;
+    private final Semaphore permits;                                      // One permit per connection that may be open
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Map<PooledConnection, Borrow> borrowed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+
+    // Metrics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+
+    private volatile boolean closed = false;
+
+    public ConnectionPool(PoolConfig config) {
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(config.getLeakThresholdMillis(), config.getMaxIdleMillis()) / 2);
+        housekeeper.scheduleAtFixedRate(this::housekeeping, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting at most the configured maximum wait for one to become free.
+     * Closing the returned connection gives it back to the pool.
+     *
+     * @throws SQLTimeoutException if no connection became available in time
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getMaxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Timed out after " + config.getMaxWaitMillis()
+                        + " ms waiting for a database connection (" + getActiveCount() + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeValidIdleConnection();
+            if (pooled == null) pooled = openConnection();
+            borrowed.put(pooled, new Borrow());
+            borrowCount.increment();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // --- Metrics ---
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getMaxSize() {
+        return config.getMaxSize();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getLeakCount() {
+        return leakCount.sum();
+    }
+
+    /**
+     * @return the average time callers waited for a connection, in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.sum();
+        return borrows == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / borrows;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[active=%d, idle=%d, max=%d, borrows=%d, avgWait=%.2fms, maxWait=%.2fms, timeouts=%d, created=%d, leaks=%d]",
+                getActiveCount(), getIdleCount(), getMaxSize(), getBorrowCount(), getAverageWaitMillis(),
+                getMaxWaitMillis(), getTimeoutCount(), getCreatedCount(), getLeakCount());
+    }
+
+    /**
+     * Closes all idle connections and stops background work. Borrowed connections are closed on return.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysically();
+        }
+    }
+
+    // --- Internals ---
+
+    private PooledConnection takeValidIdleConnection() {
+        PooledConnection pooled;
+        // Most recently used first: those are the least likely to have been dropped by the server
+        while ((pooled = idle.pollFirst()) != null) {
+            if (pooled.idleMillis() < config.getValidationIdleMillis() || pooled.isValid(config.getValidationTimeoutSeconds())) {
+                return pooled;
+            }
+            pooled.closePhysically();
+        }
+        return null;
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(config.getJdbcUrl(), config.getUser(), config.getPassword());
+        createdCount.increment();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pooled) {
+        if (borrowed.remove(pooled) == null) return; // Already returned
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                pooled.closePhysically();
+            } else {
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();    // Never hand out a connection with an open transaction
+                    pooled.physical.setAutoCommit(true);
+                }
+                pooled.lastUsed = System.nanoTime();
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            pooled.closePhysically();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void housekeeping() {
+        // Close connections that have been idle too long; the server would drop them anyway
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (pooled.idleMillis() > config.getMaxIdleMillis() && idle.remove(pooled)) {
+                pooled.closePhysically();
+            }
+        }
+
+        // Report connections held longer than the leak threshold, once per borrow
+        long now = System.nanoTime();
+        for (Map.Entry<PooledConnection, Borrow> entry : borrowed.entrySet()) {
+            Borrow borrow = entry.getValue();
+            long heldMillis = (now - borrow.since) / 1_000_000;
+            if (!borrow.reported && heldMillis > config.getLeakThresholdMillis()) {
+                borrow.reported = true;
+                leakCount.increment();
+                LOG.error("Possible leak: connection held for {} ms by thread {}", heldMillis, borrow.threadName, borrow.stack);
+            }
+        }
+    }
+
+    /**
+     * Who borrowed a connection and when, for leak detection.
+     */
+    private static class Borrow {
+        final long since = System.nanoTime();
+        final String threadName = Thread.currentThread().getName();
+        final Exception stack = new Exception("Connection borrowed here");
+        volatile boolean reported = false;
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private class PooledConnection {
+        final Connection physical;
+        volatile long lastUsed = System.nanoTime();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        long idleMillis() {
+            return (System.nanoTime() - lastUsed) / 1_000_000;
+        }
+
+        boolean isValid(int timeoutSeconds) {
+            try {
+                return physical.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysically() {
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+            }
+        }
+
+        /**
+         * Creates the handle given to callers. Closing it returns this connection to the pool;
+         * any use after that fails instead of touching a connection someone else now owns.
+         */
+        Connection newHandle() {
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean returned = false;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!returned) {
+                                returned = true;
+                                release(PooledConnection.this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return returned || physical.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Pooled" + physical;
+                        default:
+                            if (returned) throw new SQLException("Connection has already been returned to the pool");
+                            try {
+                                return method.invoke(physical, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+        }
+    }
+}
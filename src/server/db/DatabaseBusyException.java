@@ -0,0 +1,14 @@
+package server.db;
+
+/**
+ * Signals that a database call was rejected because the DB executor is saturated
+ * or the call waited longer than its deadline.
+ */
+public class DatabaseBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DatabaseBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,110 @@
+package server.db;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs database calls on a small dedicated pool so they never block a connection's I/O thread.
+ *
+ * The queue is bounded: when it is full, or a call is still waiting when its deadline passes,
+ * the returned future fails fast with {@link DatabaseBusyException} instead of piling up work
+ * behind a slow database.
+ */
+public class DbExecutor implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
+
+    public DbExecutor(int threads, int queueCapacity, long timeoutMillis) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "db-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Creates an executor sized from {@code -Dquarto.db.executor.threads} (default: {@code defaultThreads}),
+     * {@code -Dquarto.db.executor.queue} (default 64) and {@code -Dquarto.db.executor.timeoutMs} (default 5000).
+     */
+    public static DbExecutor fromSystemProperties(int defaultThreads) {
+        return new DbExecutor(
+                Integer.getInteger("quarto.db.executor.threads", defaultThreads),
+                Integer.getInteger("quarto.db.executor.queue", 64),
+                Long.getLong("quarto.db.executor.timeoutMs", 5000));
+    }
+
+    /**
+     * Runs the call on a DB thread.
+     *
+     * @return a future completed with the call's result, or failed with {@link DatabaseBusyException}
+     * if the executor is saturated or the call did not finish within the timeout
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) return;                 // Timed out while queued, nobody is waiting
+                if (System.nanoTime() > deadline) {
+                    expiredCount.increment();
+                    future.completeExceptionally(new DatabaseBusyException("Database call expired in queue"));
+                    return;
+                }
+                try {
+                    future.complete(call.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            future.completeExceptionally(new DatabaseBusyException("Database executor is saturated"));
+            return future;
+        }
+        return future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return true if the failure means the database was too busy to answer in time
+     */
+    public static boolean isBusy(Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        return cause instanceof DatabaseBusyException || cause instanceof TimeoutException;
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
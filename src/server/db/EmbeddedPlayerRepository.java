@@ -0,0 +1,563 @@
+package server.db;
+
+import common.protocol.LoginResult;
+import server.history.GameRecord;
+import server.leaderboard.Leaderboard;
+import server.log.Log;
+import server.log.Logger;
+import server.model.PlayerStats;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * PlayerRepository kept in a single local file, for small deployments and load tests without MySQL.
+ *
+ * Every change is appended to a memory-mapped log, and the current state of every account is
+ * kept in an in-memory index, so lookups never touch the file and updates cost a memory copy.
+ * On open the log is replayed to rebuild the index.
+ *
+ * Record layout: {@code [int length][byte type][payload][int crc32 of type+payload]}.
+ * A batch of journaled results is one record together with its checkpoint, so it is applied
+ * all-or-nothing. A torn record at the tail fails its CRC and is discarded on open.
+ * Registrations and journal batches are forced to disk; direct {@link #recordResult} calls
+ * are left to the OS to write back.
+ *
+ * The log is a single mapping of at most {@code -Dquarto.store.maxBytes} (2 GiB). When it is full,
+ * it is compacted: a snapshot of every account with its current statistics, the journal checkpoint
+ * and the game history is written to a new file, which then replaces the log. Once the snapshot
+ * would take more than half the limit, so compactions would follow each other ever faster,
+ * updates fail with "Player store is full" instead.
+ * Usernames longer than {@link PlayerRepository#MAX_USERNAME_LENGTH} are refused.
+ */
+public class EmbeddedPlayerRepository implements PlayerRepository {
+
+    private static final Logger LOG = Log.get("db");
+    private static final byte TYPE_USER = 'U';
+    private static final byte TYPE_RESULTS = 'B';
+    private static final byte TYPE_GAMES = 'G';
+    private static final byte TYPE_ACCOUNT = 'A';   // An account with its statistics, written by compaction
+    private static final long NO_SEQ = -1;
+    private static final int INITIAL_SIZE = 1 << 20;
+    private static final int MAX_SIZE = Integer.MAX_VALUE;   // One mapping; ample for a single-node store
+    private static final int GAMES_PER_RECORD = 1024;        // When compacting the history
+
+    private final Path path;
+    private final int maxSize;
+    private FileChannel channel;                                // Guarded by this; replaced by compaction
+    private MappedByteBuffer log;                               // Guarded by this
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private volatile long lastAppliedSeq = 0;
+
+    // Game history, each list in id order (guarded by this)
+    private final Map<String, List<GameRecord>> gamesByPlayer = new HashMap<>();
+    private final Map<String, List<GameRecord>> gamesByPair = new HashMap<>();
+    private long lastGameId = 0;
+
+    private EmbeddedPlayerRepository(Path path, int maxSize) throws IOException {
+        this.path = path;
+        this.maxSize = maxSize;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.log = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(Math.min(INITIAL_SIZE, maxSize), channel.size()));
+        replay();
+    }
+
+    /**
+     * Opens the store, creating the file if needed.
+     */
+    public static EmbeddedPlayerRepository open(Path path) throws IOException {
+        return open(path, MAX_SIZE);
+    }
+
+    /**
+     * Opens the store with a smaller size limit, after which the log is compacted.
+     */
+    public static EmbeddedPlayerRepository open(Path path, int maxSize) throws IOException {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive");
+        return new EmbeddedPlayerRepository(path, maxSize);
+    }
+
+    /**
+     * Opens the store at {@code -Dquarto.store.path} (default {@code data/players.log}),
+     * limited to {@code -Dquarto.store.maxBytes}.
+     */
+    public static EmbeddedPlayerRepository openDefault() throws IOException {
+        return open(Paths.get(System.getProperty("quarto.store.path", "data/players.log")),
+                Integer.getInteger("quarto.store.maxBytes", MAX_SIZE));
+    }
+
+    // --- Lookups: served from memory ---
+
+    @Override
+    public boolean userExists(String username) {
+        return accounts.containsKey(username);
+    }
+
+    @Override
+    public boolean checkPassword(String username, String password) {
+        Account account = accounts.get(username);
+        return account != null && account.password.equals(password);
+    }
+
+    @Override
+    public List<PlayerStats> getAllPlayers() {
+        List<PlayerStats> players = new ArrayList<>(accounts.size());
+        for (Account account : accounts.values()) {
+            players.add(account.stats);
+        }
+        players.sort(Leaderboard.ORDER);
+        return players;
+    }
+
+    @Override
+    public synchronized boolean loadLeaderboard(Leaderboard leaderboard) {
+        // Under the lock, so no batch lands between the snapshot and its checkpoint
+        leaderboard.load(getAllPlayers(), lastAppliedSeq);
+        return true;
+    }
+
+    @Override
+    public long getLastAppliedResultSeq() {
+        return lastAppliedSeq;
+    }
+
+    // --- Updates: appended to the log, then applied to the index ---
+
+    @Override
+    public synchronized boolean registerUser(String username, String password) {
+        if (accounts.containsKey(username)) return false;
+        if (username.length() > MAX_USERNAME_LENGTH) return false;
+        try {
+            append(TYPE_USER, encodeUser(username, password), true);
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.error("Could not register {}", username, e);
+            return false;
+        }
+        accounts.put(username, new Account(password, PlayerStats.newPlayer(username)));
+        return true;
+    }
+
+    @Override
+    public synchronized LoginResult login(String username, String password) {
+        Account account = accounts.get(username);
+        if (account != null) {
+            return account.password.equals(password) ? LoginResult.OK : LoginResult.WRONG_PASSWORD;
+        }
+        return registerUser(username, password) ? LoginResult.CREATED : LoginResult.ERROR;
+    }
+
+    @Override
+    public synchronized boolean recordResult(String username, GameResult result) {
+        if (!accounts.containsKey(username)) return false;
+        try {
+            append(TYPE_RESULTS, encodeResults(List.of(new RecordedResult(NO_SEQ, username, result)), NO_SEQ), false);
+        } catch (IOException e) {
+            LOG.error("Could not record a game result for {}", username, e);
+            return false;
+        }
+        applyToIndex(username, result);
+        return true;
+    }
+
+    @Override
+    public synchronized void applyResults(List<RecordedResult> results, long lastSeq) throws RepositoryException {
+        try {
+            append(TYPE_RESULTS, encodeResults(results, lastSeq), true);
+        } catch (IOException e) {
+            throw new RepositoryException("Could not append " + results.size() + " game results to " + path, e);
+        }
+        for (RecordedResult recorded : results) {
+            if (!applyToIndex(recorded.username(), recorded.result())) {
+                LOG.warn("A game result referenced an unknown player");
+            }
+        }
+        lastAppliedSeq = Math.max(lastAppliedSeq, lastSeq);
+    }
+
+    @Override
+    public synchronized void saveGames(List<GameRecord> games) throws RepositoryException {
+        List<GameRecord> stored = new ArrayList<>(games.size());
+        long id = lastGameId;
+        for (GameRecord game : games) {
+            stored.add(game.withId(++id));
+        }
+        try {
+            append(TYPE_GAMES, encodeGames(stored), false);
+        } catch (IOException e) {
+            throw new RepositoryException("Could not append " + games.size() + " games to " + path, e);
+        }
+        for (GameRecord game : stored) {
+            indexGame(game);
+        }
+    }
+
+    @Override
+    public synchronized List<GameRecord> getGames(String player, long beforeId, int limit) {
+        return newestBefore(gamesByPlayer.get(player), beforeId, limit);
+    }
+
+    @Override
+    public synchronized List<GameRecord> getHeadToHead(String player1, String player2, long beforeId, int limit) {
+        return newestBefore(gamesByPair.get(pairKey(player1, player2)), beforeId, limit);
+    }
+
+    private void indexGame(GameRecord game) {
+        gamesByPlayer.computeIfAbsent(game.playerA(), k -> new ArrayList<>()).add(game);
+        gamesByPlayer.computeIfAbsent(game.playerB(), k -> new ArrayList<>()).add(game);
+        gamesByPair.computeIfAbsent(pairKey(game.playerA(), game.playerB()), k -> new ArrayList<>()).add(game);
+        lastGameId = Math.max(lastGameId, game.id());
+    }
+
+    private static String pairKey(String player1, String player2) {
+        return (player1.compareTo(player2) <= 0) ? player1 + '\n' + player2 : player2 + '\n' + player1;
+    }
+
+    /**
+     * @return up to {@code limit} games with an id below {@code beforeId}, newest first
+     */
+    private static List<GameRecord> newestBefore(List<GameRecord> games, long beforeId, int limit) {
+        List<GameRecord> page = new ArrayList<>();
+        if (games == null) return page;
+        // Binary search for the first game at or past beforeId; everything before it qualifies
+        int low = 0;
+        int high = games.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (games.get(mid).id() < beforeId) low = mid + 1;
+            else high = mid;
+        }
+        for (int i = low - 1; i >= 0 && page.size() < limit; i--) {
+            page.add(games.get(i));
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            log.force();
+            channel.close();
+        } catch (IOException e) {
+            LOG.error("Could not close {}", path, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EmbeddedPlayerRepository[" + path + ", players=" + accounts.size() + "]";
+    }
+
+    private boolean applyToIndex(String username, GameResult result) {
+        Account account = accounts.get(username);
+        if (account == null) return false;
+        account.stats = account.stats.withResult(result);
+        return true;
+    }
+
+    // --- Log ---
+
+    private void append(byte type, byte[] payload, boolean force) throws IOException {
+        int recordSize = 4 + 1 + payload.length + 4;
+        ensureCapacity(recordSize + 4);    // Keep room for the zero length that marks the end
+
+        int start = log.position();
+        writeRecord(log, type, payload);
+        if (force) log.force(start, recordSize);
+    }
+
+    private static void writeRecord(ByteBuffer out, byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        out.putInt(1 + payload.length);
+        out.put(type);
+        out.put(payload);
+        out.putInt((int) crc.getValue());
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if (log.remaining() >= needed) return;
+        if ((long) log.position() + needed > maxSize) {
+            compact(needed);
+            if (log.remaining() >= needed) return;
+        }
+        long newSize = Math.min((long) maxSize, Math.max((long) log.capacity() * 2, (long) log.position() + needed));
+        if (newSize - log.position() < needed) throw new IOException("Player store is full: " + path);
+        int position = log.position();
+        log.force();
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+        log.position(position);
+    }
+
+    /**
+     * Writes the current state to a new file and swaps it in for the log, leaving room for
+     * {@code needed} more bytes if the size limit allows.
+     *
+     * @throws IOException if the snapshot does not leave that room, or could not be written;
+     *                     the log is then left as it was
+     */
+    private void compact(int needed) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        List<Byte> types = new ArrayList<>();
+        for (Map.Entry<String, Account> entry : accounts.entrySet()) {
+            Account account = entry.getValue();
+            if (account.stats.gamesPlayed() == 0) {
+                records.add(encodeUser(entry.getKey(), account.password));
+                types.add(TYPE_USER);
+            } else {
+                records.add(encodeAccount(account));
+                types.add(TYPE_ACCOUNT);
+            }
+        }
+        records.add(encodeResults(List.of(), lastAppliedSeq));   // Keeps the journal checkpoint
+        types.add(TYPE_RESULTS);
+        List<GameRecord> games = new ArrayList<>();
+        for (List<GameRecord> pairGames : gamesByPair.values()) {
+            games.addAll(pairGames);   // Every game is in exactly one pair's list
+        }
+        games.sort(Comparator.comparingLong(GameRecord::id));
+        for (int from = 0; from < games.size(); from += GAMES_PER_RECORD) {
+            records.add(encodeGames(games.subList(from, Math.min(games.size(), from + GAMES_PER_RECORD))));
+            types.add(TYPE_GAMES);
+        }
+
+        long snapshotSize = 0;
+        for (byte[] payload : records) {
+            snapshotSize += 4 + 1 + payload.length + 4;
+        }
+        if (snapshotSize + needed > maxSize / 2) {
+            throw new IOException("Player store is full, even after compaction (" + snapshotSize + " bytes of data): " + path);
+        }
+
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        FileChannel newChannel = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer newLog;
+        try {
+            long size = Math.min((long) maxSize, Math.max(INITIAL_SIZE, (snapshotSize + needed) * 2));
+            newLog = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            for (int i = 0; i < records.size(); i++) {
+                writeRecord(newLog, types.get(i), records.get(i));
+            }
+            newLog.force();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            newChannel.close();
+            Files.deleteIfExists(compacted);
+            throw e;
+        }
+        channel.close();
+        channel = newChannel;
+        log = newLog;
+        LOG.info("Compacted {} to {} bytes, {} players", path, snapshotSize, accounts.size());
+    }
+
+    /**
+     * Rebuilds the index from the log and positions the log after the last valid record.
+     */
+    private void replay() {
+        int users = 0;
+        int results = 0;
+        while (log.remaining() >= 4) {
+            int start = log.position();
+            int length = log.getInt();
+            if (length <= 0 || length > log.remaining() - 4) {
+                log.position(start);
+                break;
+            }
+            byte[] body = new byte[length];
+            log.get(body);
+            int storedCrc = log.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != storedCrc) {
+                LOG.warn("Discarding torn record at offset {} of {}", start, path);
+                log.position(start);
+                break;
+            }
+            try {
+                if (body[0] == TYPE_USER) {
+                    replayUser(body);
+                    users++;
+                } else if (body[0] == TYPE_RESULTS) {
+                    results += replayResults(body);
+                } else if (body[0] == TYPE_GAMES) {
+                    replayGames(body);
+                } else if (body[0] == TYPE_ACCOUNT) {
+                    replayAccount(body);
+                    users++;
+                }
+            } catch (BufferUnderflowException e) {
+                log.position(start);
+                break;
+            }
+        }
+        // Clear whatever follows, so a torn record can never be mistaken for a valid one later
+        int end = log.position();
+        for (int i = end; i < log.limit(); i++) {
+            if (log.get(i) != 0) log.put(i, (byte) 0);
+        }
+        if (users > 0) {
+            LOG.info("Loaded {} players and {} results from {}", users, results, path);
+        }
+    }
+
+    private void replayUser(byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body, 1, body.length - 1);
+        String username = readString(in);
+        String password = readString(in);
+        accounts.putIfAbsent(username, new Account(password, PlayerStats.newPlayer(username)));
+    }
+
+    private void replayAccount(byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body, 1, body.length - 1);
+        String username = readString(in);
+        String password = readString(in);
+        PlayerStats stats = new PlayerStats(username, in.getInt(), in.getInt(), in.getInt(), in.getInt(),
+                in.getDouble(), in.getDouble());
+        accounts.put(username, new Account(password, stats));
+    }
+
+    private int replayResults(byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body, 1, body.length - 1);
+        long lastSeq = in.getLong();
+        int count = in.getInt();
+        GameResult[] values = GameResult.values();
+        for (int i = 0; i < count; i++) {
+            String username = readString(in);
+            applyToIndex(username, values[in.get()]);
+        }
+        if (lastSeq != NO_SEQ) lastAppliedSeq = Math.max(lastAppliedSeq, lastSeq);
+        return count;
+    }
+
+    private void replayGames(byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body, 1, body.length - 1);
+        int count = in.getInt();
+        GameRecord.Result[] values = GameRecord.Result.values();
+        for (int i = 0; i < count; i++) {
+            long id = in.getLong();
+            GameRecord.Result result = values[in.get()];
+            boolean playerAStarted = in.get() != 0;
+            long startedAt = in.getLong();
+            long endedAt = in.getLong();
+            String playerA = readString(in);
+            String playerB = readString(in);
+            byte[] moves = new byte[in.get() & 0xFF];
+            in.get(moves);
+            indexGame(new GameRecord(id, playerA, playerB, result, playerAStarted, startedAt, endedAt, moves));
+        }
+    }
+
+    private static byte[] encodeGames(List<GameRecord> games) {
+        int size = 4;
+        for (GameRecord game : games) {
+            size += 8 + 1 + 1 + 8 + 8 + 1 + game.moves().length
+                    + 2 + game.playerA().getBytes(StandardCharsets.UTF_8).length
+                    + 2 + game.playerB().getBytes(StandardCharsets.UTF_8).length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(games.size());
+        for (GameRecord game : games) {
+            out.putLong(game.id());
+            out.put((byte) game.result().ordinal());
+            out.put((byte) (game.playerAStarted() ? 1 : 0));
+            out.putLong(game.startedAt());
+            out.putLong(game.endedAt());
+            writeString(out, game.playerA().getBytes(StandardCharsets.UTF_8));
+            writeString(out, game.playerB().getBytes(StandardCharsets.UTF_8));
+            out.put((byte) game.moves().length);
+            out.put(game.moves());
+        }
+        return out.array();
+    }
+
+    private static byte[] encodeUser(String username, String password) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        byte[] pass = password.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer out = ByteBuffer.allocate(4 + name.length + pass.length);
+        writeString(out, name);
+        writeString(out, pass);
+        return out.array();
+    }
+
+    private static byte[] encodeAccount(Account account) {
+        PlayerStats stats = account.stats;
+        byte[] name = stats.username().getBytes(StandardCharsets.UTF_8);
+        byte[] pass = account.password.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer out = ByteBuffer.allocate(4 + name.length + pass.length + 4 * 4 + 2 * 8);
+        writeString(out, name);
+        writeString(out, pass);
+        out.putInt(stats.gamesPlayed());
+        out.putInt(stats.wins());
+        out.putInt(stats.draws());
+        out.putInt(stats.losses());
+        out.putDouble(stats.winPercentage());
+        out.putDouble(stats.ranking());
+        return out.array();
+    }
+
+    private static byte[] encodeResults(List<RecordedResult> results, long lastSeq) {
+        int size = 8 + 4;
+        List<byte[]> names = new ArrayList<>(results.size());
+        for (RecordedResult recorded : results) {
+            byte[] name = recorded.username().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += 2 + name.length + 1;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putLong(lastSeq);
+        out.putInt(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            writeString(out, names.get(i));
+            out.put((byte) results.get(i).result().ordinal());
+        }
+        return out.array();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the string does not fit the 16-bit length field
+     */
+    private static void writeString(ByteBuffer out, byte[] bytes) {
+        if (bytes.length > 0xFFFF) throw new IllegalArgumentException("String too long to store: " + bytes.length + " bytes");
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An account in the index. The stats reference is replaced on every update.
+     */
+    private static class Account {
+        final String password;
+        volatile PlayerStats stats;
+
+        Account(String password, PlayerStats stats) {
+            this.password = password;
+            this.stats = stats;
+        }
+    }
+}
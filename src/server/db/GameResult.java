@@ -0,0 +1,33 @@
+package server.db;
+
+/**
+ * The outcome of a finished game from one player's point of view,
+ * with the amount each counter in the players table moves by.
+ */
+public enum GameResult {
+    WIN(1, 0, 0),
+    DRAW(0, 1, 0),
+    LOSS(0, 0, 1);
+
+    private final int wins;
+    private final int draws;
+    private final int losses;
+
+    GameResult(int wins, int draws, int losses) {
+        this.wins = wins;
+        this.draws = draws;
+        this.losses = losses;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public int getLosses() {
+        return losses;
+    }
+}
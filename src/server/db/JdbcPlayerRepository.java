@@ -0,0 +1,367 @@
+package server.db;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import common.protocol.LoginResult;
+import server.history.GameRecord;
+import server.leaderboard.Leaderboard;
+import server.log.Log;
+import server.log.Logger;
+import server.model.PlayerStats;
+
+/**
+ * PlayerRepository backed by the MySQL database, using connections from a {@link ConnectionPool}.
+ */
+public class JdbcPlayerRepository implements PlayerRepository {
+
+    private static final Logger LOG = Log.get("db");
+    private static final String CHECKPOINT_SELECT_SQL = "SELECT last_seq FROM journal_checkpoint WHERE id = 1";
+    private static final String CHECKPOINT_UPDATE_SQL = "INSERT INTO journal_checkpoint(id, last_seq) VALUES(1, ?) "
+            + "ON DUPLICATE KEY UPDATE last_seq = GREATEST(last_seq, VALUES(last_seq))";
+
+    private static final String GAME_INSERT_SQL = "INSERT INTO games(player_a, player_b, result, a_started, started_at, ended_at, moves) "
+            + "VALUES(?, ?, ?, ?, ?, ?, ?)";
+    private static final String GAME_COLUMNS = "id, player_a, player_b, result, a_started, started_at, ended_at, moves";
+    // Two index range scans (player_a, id) and (player_b, id) merged, rather than one OR that scans both columns
+    private static final String GAMES_SELECT_SQL =
+            "(SELECT " + GAME_COLUMNS + " FROM games WHERE player_a = ? AND id < ? ORDER BY id DESC LIMIT ?) "
+            + "UNION ALL "
+            + "(SELECT " + GAME_COLUMNS + " FROM games WHERE player_b = ? AND id < ? ORDER BY id DESC LIMIT ?) "
+            + "ORDER BY id DESC LIMIT ?";
+    private static final String HEAD_TO_HEAD_SELECT_SQL = "SELECT " + GAME_COLUMNS
+            + " FROM games WHERE player_a = ? AND player_b = ? AND id < ? ORDER BY id DESC LIMIT ?";
+
+    private final PoolConfig config;
+    private final ConnectionPool pool;
+
+    public JdbcPlayerRepository(PoolConfig config) {
+        this.config = config;
+        this.pool = new ConnectionPool(config);
+    }
+
+    /**
+     * @return the connection pool, for its metrics
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Borrows a connection from the pool. Closing it returns it to the pool.
+     */
+    private Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    /**
+     * Checks if a user already exists in the database.
+     *
+     * @param username the username to check
+     * @return true if the user exists, false otherwise
+     */
+    @Override
+    public boolean userExists(String username) {
+        String sql = "SELECT COUNT(*) FROM players WHERE username = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, username);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()){
+                int count = rs.getInt(1);
+                return count > 0;
+            }
+        } catch (SQLException e) {
+            LOG.error("Could not look up user {}", username, e);
+        }
+        return false;
+    }
+
+    /**
+     * Validates the password for the given username.
+     *
+     * @param username the username to check
+     * @param password the password to validate
+     * @return true if password matches, false otherwise
+     */
+    @Override
+    public boolean checkPassword(String username, String password) {
+        try (Connection conn = getConnection()) {
+            String storedPassword = storedPassword(conn, username);
+            return storedPassword != null && storedPassword.equals(password);
+        } catch (SQLException e) {
+            LOG.error("Could not check the password of {}", username, e);
+        }
+        return false;
+    }
+
+    /**
+     * Registers a new user in the database if username is available.
+     * Relies on the UNIQUE constraint on username instead of a separate existence check.
+     *
+     * @param username the new username
+     * @param password the password to store
+     * @return true if registration succeeded, false otherwise
+     */
+    @Override
+    public boolean registerUser(String username, String password) {
+        try (Connection conn = getConnection()) {
+            return insertUser(conn, username, password);
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return false; // Username already taken
+        } catch (SQLException e) {
+            LOG.error("Could not register {}", username, e);
+        }
+        return false;
+    }
+
+    /**
+     * Logs a user in, registering the account first if the username is unknown.
+     * Existing users cost a single query; new users one query plus one insert on the same connection.
+     *
+     * @param username the username to log in
+     * @param password the password to validate, or to store for a new account
+     * @return OK, CREATED, WRONG_PASSWORD, or ERROR if the database could not be reached
+     */
+    @Override
+    public LoginResult login(String username, String password) {
+        try (Connection conn = getConnection()) {
+            String storedPassword = storedPassword(conn, username);
+            if (storedPassword == null) {
+                try {
+                    return insertUser(conn, username, password) ? LoginResult.CREATED : LoginResult.ERROR;
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Registered concurrently by another connection; validate against that account,
+                    // still on this connection so a login never holds two from the pool
+                    storedPassword = storedPassword(conn, username);
+                    if (storedPassword == null) return LoginResult.ERROR;
+                }
+            }
+            return storedPassword.equals(password) ? LoginResult.OK : LoginResult.WRONG_PASSWORD;
+        } catch (SQLException e) {
+            LOG.error("Could not log in {}", username, e);
+        }
+        return LoginResult.ERROR;
+    }
+
+    /**
+     * @return the user's password, or null if there is no such user
+     */
+    private static String storedPassword(Connection conn, String username) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT password FROM players WHERE username = ?")) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString("password") : null;
+            }
+        }
+    }
+
+    private boolean insertUser(Connection conn, String username, String password) throws SQLException {
+        String sql = "INSERT INTO players(username, password, win_percentage, games_played, ranking) VALUES(?, ?, 0, 0, 0)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, username);
+            stmt.setString(2, password);
+            int rowsAffected = stmt.executeUpdate();
+            return rowsAffected > 0;
+        }
+    }
+
+    /**
+     * Retrieves all players from the database including calculated losses.
+     *
+     * @return list of players
+     */
+    @Override
+    public List<PlayerStats> getAllPlayers() {
+        List<PlayerStats> players = new ArrayList<>();
+        String sql = "SELECT username, win_percentage, games_played, ranking, wins, draws, " +
+                "(games_played - wins - draws) AS losses FROM players ORDER BY ranking DESC, username";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                String username = rs.getString("username");
+                double winPerc = rs.getDouble("win_percentage");
+                int gamesPlayed = rs.getInt("games_played");
+                double ranking = rs.getDouble("ranking");
+                int wins = rs.getInt("wins");
+                int draws = rs.getInt("draws");
+                int losses = rs.getInt("losses");
+
+                players.add(new PlayerStats(username, gamesPlayed, wins, draws, losses, winPerc, ranking));
+            }
+        } catch (SQLException e) {
+            LOG.error("Could not load the players", e);
+        }
+        return players;
+    }
+
+    /**
+     * Loads every player into the leaderboard, together with the journal checkpoint the
+     * snapshot corresponds to. Both are read in one repeatable-read transaction, so results
+     * committed afterwards are exactly those the leaderboard still has to apply.
+     *
+     * @return true if the leaderboard was loaded
+     */
+    @Override
+    public boolean loadLeaderboard(Leaderboard leaderboard) {
+        String playersSql = "SELECT username, win_percentage, games_played, ranking, wins, draws, " +
+                "(games_played - wins - draws) AS losses FROM players";
+        try (Connection conn = getConnection()) {
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            long asOfSeq = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(CHECKPOINT_SELECT_SQL);
+                 ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) asOfSeq = rs.getLong("last_seq");
+            }
+            List<PlayerStats> entries = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(playersSql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(new PlayerStats(rs.getString("username"), rs.getInt("games_played"),
+                            rs.getInt("wins"), rs.getInt("draws"), rs.getInt("losses"),
+                            rs.getDouble("win_percentage"), rs.getDouble("ranking")));
+                }
+            }
+            conn.commit();
+            leaderboard.load(entries, asOfSeq);
+            return true;
+        } catch (SQLException e) {
+            LOG.error("Could not load the leaderboard", e);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean recordResult(String username, GameResult result) {
+        try (Connection conn = getConnection()) {
+            return StatsWriter.record(conn, username, result);
+        } catch (SQLException e) {
+            LOG.error("Could not record a game result for {}", username, e);
+        }
+        return false;
+    }
+
+    @Override
+    public long getLastAppliedResultSeq() throws RepositoryException {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(CHECKPOINT_SELECT_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong("last_seq") : 0;
+        } catch (SQLException e) {
+            throw new RepositoryException("Could not read the journal checkpoint", e);
+        }
+    }
+
+    /**
+     * Applies the batch and advances the journal_checkpoint row in one transaction.
+     */
+    @Override
+    public void applyResults(List<RecordedResult> results, long lastSeq) throws RepositoryException {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement update = conn.prepareStatement(StatsWriter.UPDATE_SQL);
+                 PreparedStatement advance = conn.prepareStatement(CHECKPOINT_UPDATE_SQL)) {
+                for (RecordedResult recorded : results) {
+                    StatsWriter.bind(update, recorded.username(), recorded.result());
+                    update.addBatch();
+                }
+                int[] counts = update.executeBatch();
+                advance.setLong(1, lastSeq);
+                advance.executeUpdate();
+                conn.commit();
+                for (int count : counts) {
+                    if (count == 0) LOG.warn("A game result referenced an unknown player");
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Could not apply " + results.size() + " game results", e);
+        }
+    }
+
+    /**
+     * Inserts the games as one JDBC batch, which the driver sends as a multi-row INSERT.
+     */
+    @Override
+    public void saveGames(List<GameRecord> games) throws RepositoryException {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(GAME_INSERT_SQL)) {
+            for (GameRecord game : games) {
+                stmt.setString(1, game.playerA());
+                stmt.setString(2, game.playerB());
+                stmt.setByte(3, (byte) game.result().ordinal());
+                stmt.setBoolean(4, game.playerAStarted());
+                stmt.setTimestamp(5, new Timestamp(game.startedAt()));
+                stmt.setTimestamp(6, new Timestamp(game.endedAt()));
+                stmt.setBytes(7, game.moves());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new RepositoryException("Could not store " + games.size() + " games", e);
+        }
+    }
+
+    @Override
+    public List<GameRecord> getGames(String player, long beforeId, int limit) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(GAMES_SELECT_SQL)) {
+            stmt.setString(1, player);
+            stmt.setLong(2, beforeId);
+            stmt.setInt(3, limit);
+            stmt.setString(4, player);
+            stmt.setLong(5, beforeId);
+            stmt.setInt(6, limit);
+            stmt.setInt(7, limit);
+            return readGames(stmt);
+        } catch (SQLException e) {
+            LOG.error("Could not load the games of {}", player, e);
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<GameRecord> getHeadToHead(String player1, String player2, long beforeId, int limit) {
+        boolean inOrder = player1.compareTo(player2) <= 0;
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(HEAD_TO_HEAD_SELECT_SQL)) {
+            stmt.setString(1, inOrder ? player1 : player2);
+            stmt.setString(2, inOrder ? player2 : player1);
+            stmt.setLong(3, beforeId);
+            stmt.setInt(4, limit);
+            return readGames(stmt);
+        } catch (SQLException e) {
+            LOG.error("Could not load the games between {} and {}", player1, player2, e);
+        }
+        return new ArrayList<>();
+    }
+
+    private static List<GameRecord> readGames(PreparedStatement stmt) throws SQLException {
+        List<GameRecord> games = new ArrayList<>();
+        GameRecord.Result[] results = GameRecord.Result.values();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                games.add(new GameRecord(rs.getLong("id"), rs.getString("player_a"), rs.getString("player_b"),
+                        results[rs.getByte("result")], rs.getBoolean("a_started"),
+                        rs.getTimestamp("started_at").getTime(), rs.getTimestamp("ended_at").getTime(),
+                        rs.getBytes("moves")));
+            }
+        }
+        return games;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    @Override
+    public String toString() {
+        return "JdbcPlayerRepository[" + config + "]";
+    }
+}
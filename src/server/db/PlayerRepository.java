@@ -0,0 +1,98 @@
+package server.db;
+
+import common.protocol.LoginResult;
+import server.history.GameRecord;
+import server.leaderboard.Leaderboard;
+import server.model.PlayerStats;
+
+import java.util.List;
+
+/**
+ * Storage for player accounts and statistics.
+ *
+ * {@link JdbcPlayerRepository} keeps them in MySQL; {@link EmbeddedPlayerRepository} keeps them
+ * in a local log file with an in-memory index, for small deployments and load tests.
+ * Implementations are thread-safe. Lookup methods report storage failures as false/empty
+ * results, like DBHelper always has; the journal methods throw so the caller can retry.
+ */
+public interface PlayerRepository extends AutoCloseable {
+
+    /**
+     * Longest username the schema stores ({@code username VARCHAR(50)}).
+     */
+    int MAX_USERNAME_LENGTH = 50;
+
+    /**
+     * @return true if the user exists
+     */
+    boolean userExists(String username);
+
+    /**
+     * @return true if the user exists and the password matches
+     */
+    boolean checkPassword(String username, String password);
+
+    /**
+     * Registers a new user.
+     *
+     * @return true if the user was created, false if the name is taken or storage failed
+     */
+    boolean registerUser(String username, String password);
+
+    /**
+     * Logs a user in, registering the account first if the username is unknown.
+     */
+    LoginResult login(String username, String password);
+
+    /**
+     * @return every player's statistics, highest ranking first, ties by username
+     */
+    List<PlayerStats> getAllPlayers();
+
+    /**
+     * Loads every player into the leaderboard, together with the last applied journal
+     * sequence number the snapshot includes.
+     *
+     * @return true if the leaderboard was loaded
+     */
+    boolean loadLeaderboard(Leaderboard leaderboard);
+
+    /**
+     * Records one game result directly, outside the journal.
+     *
+     * @return true if the player's statistics were updated
+     */
+    boolean recordResult(String username, GameResult result);
+
+    /**
+     * @return the sequence number of the last journaled result applied by {@link #applyResults}, or 0
+     */
+    long getLastAppliedResultSeq() throws RepositoryException;
+
+    /**
+     * Applies journaled results atomically: either all of them and the new checkpoint are stored, or none.
+     *
+     * @param lastSeq the highest sequence number in the batch, stored as the new checkpoint
+     */
+    void applyResults(List<RecordedResult> results, long lastSeq) throws RepositoryException;
+
+    /**
+     * Stores finished games in one batch.
+     */
+    void saveGames(List<GameRecord> games) throws RepositoryException;
+
+    /**
+     * @param beforeId only games with a smaller id; {@link Long#MAX_VALUE} for the most recent
+     * @return up to {@code limit} of the player's games, newest first
+     */
+    List<GameRecord> getGames(String player, long beforeId, int limit);
+
+    /**
+     * @param beforeId only games with a smaller id; {@link Long#MAX_VALUE} for the most recent
+     * @return up to {@code limit} games between the two players, newest first
+     */
+    List<GameRecord> getHeadToHead(String player1, String player2, long beforeId, int limit);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,80 @@
+package server.db;
+
+/**
+ * Settings for the database connection pool.
+ * Every value can be overridden at server start with a system property, e.g.
+ * {@code -Dquarto.db.url=jdbc:mysql://localhost/quarto_db -Dquarto.db.pool.size=20}.
+ */
+public class PoolConfig {
+
+    // Defaults; update these or pass the matching -Dquarto.db.* properties
+    private static final String DEFAULT_URL = "jdbc:mysql://***.*.*.*/quarto_db";   //Change here ***...
+    private static final String DEFAULT_USER = "****";  //Change here ***...
+    private static final String DEFAULT_PASSWORD = "*********"; //Change here ***...
+
+    private String url = DEFAULT_URL;
+    private String user = DEFAULT_USER;
+    private String password = DEFAULT_PASSWORD;
+    private int maxSize = 10;                      // Upper bound on open connections
+    private long maxWaitMillis = 2000;             // How long a caller may wait for a free connection
+    private long validationIdleMillis = 30_000;    // Connections idle longer than this are validated before use
+    private int validationTimeoutSeconds = 2;      // Timeout of a single validation check
+    private long maxIdleMillis = 600_000;          // Idle connections older than this are closed
+    private long leakThresholdMillis = 30_000;     // Connections held longer than this are reported as leaks
+    private int statementCacheSize = 64;           // Prepared statements cached per connection
+
+    /**
+     * Builds a configuration from the quarto.db.* system properties, using defaults for missing ones.
+     */
+    public static PoolConfig fromSystemProperties() {
+        PoolConfig config = new PoolConfig();
+        config.url = System.getProperty("quarto.db.url", config.url);
+        config.user = System.getProperty("quarto.db.user", config.user);
+        config.password = System.getProperty("quarto.db.password", config.password);
+        config.maxSize = Integer.getInteger("quarto.db.pool.size", config.maxSize);
+        config.maxWaitMillis = Long.getLong("quarto.db.pool.maxWaitMs", config.maxWaitMillis);
+        config.validationIdleMillis = Long.getLong("quarto.db.pool.validateAfterIdleMs", config.validationIdleMillis);
+        config.validationTimeoutSeconds = Integer.getInteger("quarto.db.pool.validationTimeoutSec", config.validationTimeoutSeconds);
+        config.maxIdleMillis = Long.getLong("quarto.db.pool.maxIdleMs", config.maxIdleMillis);
+        config.leakThresholdMillis = Long.getLong("quarto.db.pool.leakThresholdMs", config.leakThresholdMillis);
+        config.statementCacheSize = Integer.getInteger("quarto.db.pool.statementCacheSize", config.statementCacheSize);
+        return config;
+    }
+
+    /**
+     * @return the JDBC URL with batched INSERTs rewritten into multi-row statements and, unless
+     * disabled, the driver's prepared-statement cache switched on.
+     * Pooled connections live long enough for that cache to actually get hits.
+     */
+    public String getJdbcUrl() {
+        String separator = url.contains("?") ? "&" : "?";
+        String jdbcUrl = url + separator + "rewriteBatchedStatements=true";
+        if (statementCacheSize <= 0) return jdbcUrl;
+        return jdbcUrl + "&cachePrepStmts=true&useServerPrepStmts=true"
+                + "&prepStmtCacheSize=" + statementCacheSize + "&prepStmtCacheSqlLimit=2048";
+    }
+
+    public String getUrl() { return url; }
+    public String getUser() { return user; }
+    public String getPassword() { return password; }
+    public int getMaxSize() { return maxSize; }
+    public long getMaxWaitMillis() { return maxWaitMillis; }
+    public long getValidationIdleMillis() { return validationIdleMillis; }
+    public int getValidationTimeoutSeconds() { return validationTimeoutSeconds; }
+    public long getMaxIdleMillis() { return maxIdleMillis; }
+    public long getLeakThresholdMillis() { return leakThresholdMillis; }
+    public int getStatementCacheSize() { return statementCacheSize; }
+
+    public PoolConfig setUrl(String url) { this.url = url; return this; }
+    public PoolConfig setUser(String user) { this.user = user; return this; }
+    public PoolConfig setPassword(String password) { this.password = password; return this; }
+    public PoolConfig setMaxSize(int maxSize) { this.maxSize = maxSize; return this; }
+    public PoolConfig setMaxWaitMillis(long maxWaitMillis) { this.maxWaitMillis = maxWaitMillis; return this; }
+    public PoolConfig setLeakThresholdMillis(long leakThresholdMillis) { this.leakThresholdMillis = leakThresholdMillis; return this; }
+
+    @Override
+    public String toString() {
+        return "PoolConfig[url=" + url + ", maxSize=" + maxSize + ", maxWait=" + maxWaitMillis
+                + "ms, leakThreshold=" + leakThresholdMillis + "ms, statementCache=" + statementCacheSize + "]";
+    }
+}
@@ -0,0 +1,11 @@
+package server.db;
+
+/**
+ * A game result taken from the result journal.
+ *
+ * @param seq      the journal sequence number
+ * @param username the player the result belongs to
+ * @param result   the outcome
+ */
+public record RecordedResult(long seq, String username, GameResult result) {
+}
@@ -0,0 +1,13 @@
+package server.db;
+
+/**
+ * Signals that a {@link PlayerRepository} could not complete an operation; it may succeed if retried.
+ */
+public class RepositoryException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public RepositoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
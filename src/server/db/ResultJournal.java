@@ -0,0 +1,481 @@
+package server.db;
+
+import server.log.Log;
+import server.log.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind journal for game results.
+ *
+ * {@link #append} hands a result to the sync thread, which writes everything queued so far to
+ * an append-only file and fsyncs once for the whole group before acknowledging. The writer
+ * thread then drains durable results to the {@link PlayerRepository} in atomic batches. Each batch
+ * also advances the repository's checkpoint (the journal_checkpoint row for MySQL), so after a crash
+ * results are replayed from the file exactly once, whether or not the last batch was stored.
+ *
+ * File layout: a sequence of records {@code [type][seq][result][name length][name][crc32]}.
+ * A torn record at the tail (crash mid-write) fails its CRC and is cut off on open.
+ */
+public class ResultJournal implements AutoCloseable {
+
+    private static final Logger LOG = Log.get("db");
+    private static final byte TYPE_RESULT = 'R';
+    private static final byte TYPE_CHECKPOINT = 'C';     // Written when the file is compacted, keeps seq monotonic
+
+    private static final int MAX_BATCH = 256;
+    private static final long COMPACT_THRESHOLD_BYTES = 1 << 20;
+    private static final long RETRY_DELAY_MS = 2000;
+
+    private final Path path;
+    private FileChannel channel;                // Replaced on compaction (guarded by fileLock)
+    private final Object fileLock = new Object();
+    private final BlockingQueue<Append> appendQueue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<RecordedResult> applyQueue = new LinkedBlockingQueue<>();
+    private final Thread syncThread;
+    private final Thread writerThread;
+
+    private long lastSeq;                      // Last sequence number written to the file (guarded by fileLock)
+    private volatile boolean seeded = false;   // lastSeq is at least the database's checkpoint
+    private volatile long appliedSeq;          // Last sequence number known to be in the database
+    private volatile boolean running = true;
+    private volatile ResultListener listener;
+
+    private ResultJournal(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        this.channel = openChannel(path);
+        recover();
+        try {
+            seedFromCheckpoint();
+        } catch (RepositoryException e) {
+            LOG.warn("Could not read the journal checkpoint, holding appends until it can be read: {}", e.getMessage());
+        }
+
+        syncThread = new Thread(this::syncLoop, "result-journal-sync");
+        syncThread.setDaemon(true);
+        writerThread = new Thread(this::writerLoop, "result-journal-writer");
+        writerThread.setDaemon(true);
+        syncThread.start();
+        writerThread.start();
+    }
+
+    private static FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Opens the journal, replaying any results that were not yet written to the database.
+     */
+    public static ResultJournal open(Path path) throws IOException {
+        return new ResultJournal(path);
+    }
+
+    /**
+     * Opens the journal at {@code -Dquarto.journal.path} (default {@code data/results.journal}).
+     */
+    public static ResultJournal openDefault() throws IOException {
+        return open(Paths.get(System.getProperty("quarto.journal.path", "data/results.journal")));
+    }
+
+    /**
+     * Queues a game result. The returned future completes once the result is durable on disk;
+     * the database is updated later in the background. It fails at once for a missing username
+     * or one longer than the schema allows.
+     */
+    public CompletableFuture<Void> append(String username, GameResult result) {
+        Append append = new Append(username, result);
+        if (username == null || username.length() > PlayerRepository.MAX_USERNAME_LENGTH) {
+            append.done.completeExceptionally(new IllegalArgumentException("Invalid username for a game result: " + username));
+        } else if (!running) {
+            append.done.completeExceptionally(new IOException("Result journal is closed"));
+        } else {
+            appendQueue.add(append);
+        }
+        return append.done;
+    }
+
+    /**
+     * Sets the listener told about each result once it is in the database. Called on the writer thread.
+     */
+    public void setListener(ResultListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the number of durable results not yet written to the database
+     */
+    public int getBacklog() {
+        return applyQueue.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        syncThread.interrupt();
+        writerThread.interrupt();
+        try {
+            syncThread.join(5000);
+            writerThread.join(5000);
+            synchronized (fileLock) {
+                channel.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOG.error("Could not close the result journal {}", path, e);
+        }
+    }
+
+    // --- Recovery ---
+
+    /**
+     * Reads the file, truncates a torn tail and queues every result for the writer.
+     * Results the database already has are skipped by the writer using the checkpoint.
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        channel.read(buffer, 0);
+        buffer.flip();
+
+        long validEnd = 0;
+        int replayed = 0;
+        while (buffer.hasRemaining()) {
+            RecordedResult entry;
+            try {
+                entry = readRecord(buffer);
+            } catch (RuntimeException e) {   // Short read or garbage: a torn write
+                break;
+            }
+            if (entry == null) break;        // CRC mismatch
+            lastSeq = Math.max(lastSeq, entry.seq());
+            if (entry.username() != null) {
+                applyQueue.add(entry);
+                replayed++;
+            } else {
+                appliedSeq = Math.max(appliedSeq, entry.seq());
+            }
+            validEnd = buffer.position();
+        }
+
+        if (validEnd < size) {
+            LOG.warn("Truncating {} torn bytes at the end of {}", size - validEnd, path);
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        channel.position(validEnd);
+        if (replayed > 0) {
+            LOG.info("Replaying {} game results from {}", replayed, path);
+        }
+    }
+
+    /**
+     * Continues the sequence after the database's checkpoint if the file is behind it, e.g. because
+     * it was deleted or opened from another working directory. Otherwise new results would reuse
+     * sequence numbers the database already has, and the writer would skip them as applied.
+     */
+    private void seedFromCheckpoint() throws RepositoryException {
+        long checkpoint = DBHelper.getRepository().getLastAppliedResultSeq();
+        synchronized (fileLock) {
+            if (checkpoint > lastSeq) {
+                LOG.warn("Journal {} ends at result {} but the database has up to {}; continuing from there",
+                        path, lastSeq, checkpoint);
+                lastSeq = checkpoint;
+            }
+            seeded = true;
+        }
+    }
+
+    /**
+     * @return the record, with a null username for a checkpoint record, or null if the CRC does not match
+     */
+    private static RecordedResult readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+        byte type = buffer.get();
+        long seq = buffer.getLong();
+        if (type == TYPE_CHECKPOINT) {
+            int crc = buffer.getInt();
+            return crc == crc(buffer, start, 9) ? new RecordedResult(seq, null, null) : null;
+        }
+        if (type != TYPE_RESULT) return null;
+        int ordinal = buffer.get();
+        int nameLength = buffer.getShort() & 0xFFFF;
+        byte[] name = new byte[nameLength];
+        buffer.get(name);
+        int crc = buffer.getInt();
+        if (crc != crc(buffer, start, 12 + nameLength) || ordinal < 0 || ordinal >= GameResult.values().length) return null;
+        return new RecordedResult(seq, new String(name, StandardCharsets.UTF_8), GameResult.values()[ordinal]);
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset).limit(offset + length);
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name does not fit the 16-bit length field
+     */
+    private static byte[] encodeResult(long seq, String username, GameResult result) throws IOException {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFFFF) throw new IllegalArgumentException("Username too long: " + name.length + " bytes");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + name.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TYPE_RESULT);
+        out.writeLong(seq);
+        out.writeByte(result.ordinal());
+        out.writeShort(name.length);
+        out.write(name);
+        return withCrc(bytes);
+    }
+
+    private static byte[] encodeCheckpoint(long seq) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(13);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TYPE_CHECKPOINT);
+        out.writeLong(seq);
+        return withCrc(bytes);
+    }
+
+    private static byte[] withCrc(ByteArrayOutputStream bytes) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        new DataOutputStream(bytes).writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    // --- Group commit ---
+
+    /**
+     * Writes everything queued since the last round and fsyncs once for the whole group.
+     * A group that fails to write is cut off the file again, so a failed append never becomes durable.
+     */
+    private void syncLoop() {
+        List<Append> group = new ArrayList<>();
+        while (running || !appendQueue.isEmpty()) {
+            if (!seeded) {
+                try {
+                    seedFromCheckpoint();
+                } catch (RepositoryException e) {
+                    if (!running) {
+                        List<Append> unwritten = new ArrayList<>();
+                        appendQueue.drainTo(unwritten);
+                        IOException closed = new IOException("Result journal closed before the checkpoint could be read");
+                        for (Append append : unwritten) append.done.completeExceptionally(closed);
+                        break;
+                    }
+                    try {
+                        Thread.sleep(RETRY_DELAY_MS);
+                    } catch (InterruptedException ignored) {
+                    }
+                    continue;
+                }
+            }
+            try {
+                Append first = appendQueue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                group.add(first);
+                appendQueue.drainTo(group, MAX_BATCH - 1);
+            } catch (InterruptedException e) {
+                if (!running) appendQueue.drainTo(group);
+                else continue;
+            }
+
+            List<RecordedResult> written = new ArrayList<>(group.size());
+            List<Append> accepted = new ArrayList<>(group.size());
+            try {
+                synchronized (fileLock) {
+                    long seq = lastSeq;
+                    long groupStart = channel.position();
+                    try {
+                        for (Append append : group) {
+                            byte[] encoded;
+                            try {
+                                encoded = encodeResult(seq + 1, append.username, append.result);
+                            } catch (RuntimeException e) {
+                                // Fails only this result; the thread keeps serving everyone else
+                                LOG.error("Rejected a game result for {}", append.username, e);
+                                append.done.completeExceptionally(e);
+                                continue;
+                            }
+                            seq++;
+                            ByteBuffer record = ByteBuffer.wrap(encoded);
+                            while (record.hasRemaining()) channel.write(record);
+                            written.add(new RecordedResult(seq, append.username, append.result));
+                            accepted.add(append);
+                        }
+                        channel.force(false);
+                    } catch (IOException e) {
+                        discardGroup(groupStart, seq);
+                        throw e;
+                    }
+                    lastSeq = seq;
+                }
+                applyQueue.addAll(written);
+                for (Append append : accepted) append.done.complete(null);
+            } catch (IOException e) {
+                LOG.error("Failed to write {} results to the journal", group.size(), e);
+                for (Append append : group) append.done.completeExceptionally(e);
+            }
+            group.clear();
+        }
+    }
+
+    /**
+     * Cuts a group that failed to write off the end of the file. If even that fails, the sequence
+     * moves past the records that may have reached the file, so no number is ever used twice.
+     */
+    private void discardGroup(long groupStart, long lastWrittenSeq) {
+        try {
+            channel.truncate(groupStart);
+            channel.position(groupStart);
+        } catch (IOException e) {
+            LOG.error("Could not cut a failed group off {}; its results may still be replayed", path, e);
+            lastSeq = lastWrittenSeq;
+        }
+    }
+
+    // --- Write-behind ---
+
+    /**
+     * Drains durable results to the database, one transaction per batch.
+     * A failed batch is retried as a whole until the database accepts it.
+     */
+    private void writerLoop() {
+        long checkpoint = -1;
+        List<RecordedResult> batch = new ArrayList<>();
+        while (running) {
+            try {
+                if (checkpoint < 0) {
+                    checkpoint = DBHelper.getRepository().getLastAppliedResultSeq();
+                    appliedSeq = Math.max(appliedSeq, checkpoint);
+                }
+                if (batch.isEmpty()) {
+                    RecordedResult first = applyQueue.poll(500, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        compactIfIdle();
+                        continue;
+                    }
+                    batch.add(first);
+                    applyQueue.drainTo(batch, MAX_BATCH - 1);
+                }
+                long applied = applyBatch(batch, checkpoint);
+                checkpoint = Math.max(checkpoint, applied);
+                appliedSeq = checkpoint;
+                batch.clear();
+            } catch (InterruptedException e) {
+                // close(): anything left stays in the file and is replayed on the next start
+            } catch (RepositoryException e) {
+                LOG.warn("Database write failed with {} results pending, retrying in {} ms: {}",
+                        batch.size() + applyQueue.size(), RETRY_DELAY_MS, e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+
+    private void notifyApplied(List<RecordedResult> applied) {
+        ResultListener current = listener;
+        if (current == null) return;
+        for (RecordedResult entry : applied) {
+            try {
+                current.resultApplied(entry.seq(), entry.username(), entry.result());
+            } catch (RuntimeException e) {
+                LOG.error("Result listener failed for {}", entry.username(), e);
+            }
+        }
+    }
+
+    /**
+     * Applies the results not yet in the repository, together with the new checkpoint.
+     *
+     * @return the highest sequence number now in the repository
+     */
+    private long applyBatch(List<RecordedResult> batch, long checkpoint) throws RepositoryException {
+        List<RecordedResult> pending = new ArrayList<>(batch.size());
+        long maxSeq = checkpoint;
+        for (RecordedResult entry : batch) {
+            if (entry.seq() <= checkpoint) continue;    // Already applied before a restart
+            pending.add(entry);
+            maxSeq = Math.max(maxSeq, entry.seq());
+        }
+        if (pending.isEmpty()) return maxSeq;
+        DBHelper.getRepository().applyResults(pending, maxSeq);
+        notifyApplied(pending);
+        return maxSeq;
+    }
+
+    /**
+     * Once everything in the file is in the database, replaces it with a single checkpoint record
+     * so it does not grow forever. The new file is written aside and renamed over the old one,
+     * so a crash at any point leaves either the old or the new file, never an empty one.
+     */
+    private void compactIfIdle() {
+        synchronized (fileLock) {
+            try {
+                if (appliedSeq < lastSeq || channel.size() < COMPACT_THRESHOLD_BYTES) return;
+                Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+                try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    ByteBuffer record = ByteBuffer.wrap(encodeCheckpoint(lastSeq));
+                    while (record.hasRemaining()) out.write(record);
+                    out.force(true);
+                }
+                channel.close();
+                Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel = openChannel(path);
+                channel.position(channel.size());
+            } catch (IOException e) {
+                LOG.error("Compaction of {} failed", path, e);
+                reopenAfterFailedCompaction();
+            }
+        }
+    }
+
+    private void reopenAfterFailedCompaction() {
+        if (channel.isOpen()) return;
+        try {
+            channel = openChannel(path);
+            channel.position(channel.size());
+        } catch (IOException e) {
+            LOG.error("Could not reopen {}", path, e);
+        }
+    }
+
+    /**
+     * A result waiting to be written to the file.
+     */
+    private static class Append {
+        final String username;
+        final GameResult result;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Append(String username, GameResult result) {
+            this.username = username;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package server.db;
+
+/**
+ * Notified after a journaled game result has been committed to the database.
+ */
+public interface ResultListener {
+
+    /**
+     * @param seq      the result's journal sequence number, increasing across restarts
+     * @param username the player the result belongs to
+     * @param result   the outcome
+     */
+    void resultApplied(long seq, String username, GameResult result);
+}
@@ -0,0 +1,46 @@
+package server.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Applies game results to the players table.
+ *
+ * Each result is a single UPDATE that increments the counters and recomputes
+ * win_percentage and ranking in SQL, so there is one round trip per result and
+ * concurrent results for the same player cannot overwrite each other.
+ */
+public class StatsWriter {
+
+    // MySQL evaluates single-table SET assignments left to right, so the derived
+    // columns below already see the incremented games_played and wins.
+    static final String UPDATE_SQL = "UPDATE players SET "
+            + "games_played = games_played + 1, "
+            + "wins = wins + ?, "
+            + "draws = draws + ?, "
+            + "losses = losses + ?, "
+            + "win_percentage = wins * 100.0 / games_played, "
+            + "ranking = win_percentage * (1 + LN(games_played)) "
+            + "WHERE username = ?";
+
+    private StatsWriter() {
+    }
+
+    /**
+     * Records a game result using a connection owned by the caller.
+     */
+    public static boolean record(Connection conn, String username, GameResult result) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+            bind(stmt, username, result);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    static void bind(PreparedStatement stmt, String username, GameResult result) throws SQLException {
+        stmt.setInt(1, result.getWins());
+        stmt.setInt(2, result.getDraws());
+        stmt.setInt(3, result.getLosses());
+        stmt.setString(4, username);
+    }
+}
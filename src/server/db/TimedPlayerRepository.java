@@ -0,0 +1,172 @@
+package server.db;
+
+import common.protocol.LoginResult;
+import server.history.GameRecord;
+import server.leaderboard.Leaderboard;
+import server.metrics.Histogram;
+import server.metrics.Metrics;
+import server.model.PlayerStats;
+
+import java.util.List;
+
+/**
+ * Wraps a repository and records how long each call takes, in a {@code db.<method>} latency histogram.
+ * Covers every path to storage: the DBHelper calls made for clients, the journal writer and the game history.
+ */
+public class TimedPlayerRepository implements PlayerRepository {
+
+    private final PlayerRepository delegate;
+    private final Histogram userExists = Metrics.histogram("db.userExists");
+    private final Histogram checkPassword = Metrics.histogram("db.checkPassword");
+    private final Histogram registerUser = Metrics.histogram("db.registerUser");
+    private final Histogram login = Metrics.histogram("db.login");
+    private final Histogram getAllPlayers = Metrics.histogram("db.getAllPlayers");
+    private final Histogram loadLeaderboard = Metrics.histogram("db.loadLeaderboard");
+    private final Histogram recordResult = Metrics.histogram("db.recordResult");
+    private final Histogram getLastAppliedResultSeq = Metrics.histogram("db.getLastAppliedResultSeq");
+    private final Histogram applyResults = Metrics.histogram("db.applyResults");
+    private final Histogram saveGames = Metrics.histogram("db.saveGames");
+    private final Histogram getGames = Metrics.histogram("db.getGames");
+    private final Histogram getHeadToHead = Metrics.histogram("db.getHeadToHead");
+
+    public TimedPlayerRepository(PlayerRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return the wrapped repository
+     */
+    public PlayerRepository getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean userExists(String username) {
+        long start = System.nanoTime();
+        try {
+            return delegate.userExists(username);
+        } finally {
+            userExists.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean checkPassword(String username, String password) {
+        long start = System.nanoTime();
+        try {
+            return delegate.checkPassword(username, password);
+        } finally {
+            checkPassword.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean registerUser(String username, String password) {
+        long start = System.nanoTime();
+        try {
+            return delegate.registerUser(username, password);
+        } finally {
+            registerUser.recordSince(start);
+        }
+    }
+
+    @Override
+    public LoginResult login(String username, String password) {
+        long start = System.nanoTime();
+        try {
+            return delegate.login(username, password);
+        } finally {
+            login.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<PlayerStats> getAllPlayers() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAllPlayers();
+        } finally {
+            getAllPlayers.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean loadLeaderboard(Leaderboard leaderboard) {
+        long start = System.nanoTime();
+        try {
+            return delegate.loadLeaderboard(leaderboard);
+        } finally {
+            loadLeaderboard.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean recordResult(String username, GameResult result) {
+        long start = System.nanoTime();
+        try {
+            return delegate.recordResult(username, result);
+        } finally {
+            recordResult.recordSince(start);
+        }
+    }
+
+    @Override
+    public long getLastAppliedResultSeq() throws RepositoryException {
+        long start = System.nanoTime();
+        try {
+            return delegate.getLastAppliedResultSeq();
+        } finally {
+            getLastAppliedResultSeq.recordSince(start);
+        }
+    }
+
+    @Override
+    public void applyResults(List<RecordedResult> results, long lastSeq) throws RepositoryException {
+        long start = System.nanoTime();
+        try {
+            delegate.applyResults(results, lastSeq);
+        } finally {
+            applyResults.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveGames(List<GameRecord> games) throws RepositoryException {
+        long start = System.nanoTime();
+        try {
+            delegate.saveGames(games);
+        } finally {
+            saveGames.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<GameRecord> getGames(String player, long beforeId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getGames(player, beforeId, limit);
+        } finally {
+            getGames.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<GameRecord> getHeadToHead(String player1, String player2, long beforeId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getHeadToHead(player1, player2, beforeId, limit);
+        } finally {
+            getHeadToHead.recordSince(start);
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
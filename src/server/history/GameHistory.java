@@ -0,0 +1,109 @@
+package server.history;
+
+import server.db.DBHelper;
+import server.db.RepositoryException;
+import server.log.Log;
+import server.log.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects finished games and stores them in batches on a background thread,
+ * so recording a game never waits for the database and many games share one insert.
+ *
+ * Games are kept in memory until stored; a batch that fails is retried. If the database
+ * stays unavailable long enough for {@link #MAX_PENDING} games to pile up, the oldest are dropped.
+ */
+public class GameHistory implements AutoCloseable {
+
+    private static final Logger LOG = Log.get("history");
+    private static final int MAX_BATCH = 64;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+    private static final long RETRY_DELAY_MS = 2000;
+    static final int MAX_PENDING = 10_000;
+
+    private final BlockingQueue<GameRecord> queue = new LinkedBlockingQueue<>(MAX_PENDING);
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public GameHistory() {
+        writer = new Thread(this::writeLoop, "game-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a finished game for storage.
+     */
+    public void record(GameRecord game) {
+        while (!queue.offer(game)) {
+            if (queue.poll() != null) {
+                LOG.warn("Backlog full, dropping the oldest unsaved game");
+            }
+        }
+    }
+
+    /**
+     * @return the number of games not yet stored
+     */
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        writer.interrupt();
+    }
+
+    /**
+     * Stores games one batch at a time; a failed batch is retried before anything newer.
+     */
+    private void writeLoop() {
+        List<GameRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            if (batch.isEmpty()) {
+                try {
+                    fillBatch(batch);
+                } catch (InterruptedException e) {
+                    queue.drainTo(batch, MAX_BATCH);   // Shutting down: store what is left
+                }
+                if (batch.isEmpty()) continue;
+            }
+
+            try {
+                DBHelper.getRepository().saveGames(batch);
+                batch.clear();
+            } catch (RepositoryException e) {
+                LOG.warn("Could not store {} games, retrying in {} ms: {}", batch.size(), RETRY_DELAY_MS, e.getMessage());
+                if (!running) return;
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a game, then keeps collecting until the batch is full or the flush interval has passed.
+     */
+    private void fillBatch(List<GameRecord> batch) throws InterruptedException {
+        GameRecord first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+        batch.add(first);
+        long deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MS;
+        while (batch.size() < MAX_BATCH) {
+            queue.drainTo(batch, MAX_BATCH - batch.size());
+            long wait = deadline - System.currentTimeMillis();
+            if (batch.size() >= MAX_BATCH || wait <= 0) break;
+            GameRecord next = queue.poll(wait, TimeUnit.MILLISECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+    }
+}
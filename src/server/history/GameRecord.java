@@ -0,0 +1,76 @@
+package server.history;
+
+import java.util.HexFormat;
+
+/**
+ * One finished game as stored in the games table.
+ *
+ * The two players are stored in a fixed order (playerA sorts before playerB), so both
+ * directions of a head-to-head lookup hit the same index.
+ *
+ * @param id              database id, increasing with time; 0 until stored
+ * @param playerA         the player whose name sorts first
+ * @param playerB         the other player
+ * @param result          how the game ended
+ * @param playerAStarted  true if playerA made the first move
+ * @param startedAt       start time, epoch milliseconds
+ * @param endedAt         end time, epoch milliseconds
+ * @param moves           the {@link MoveList} encoding
+ */
+public record GameRecord(long id, String playerA, String playerB, Result result, boolean playerAStarted,
+                         long startedAt, long endedAt, byte[] moves) {
+
+    /**
+     * How a game ended.
+     */
+    public enum Result {
+        DRAW("draw"),
+        PLAYER_A_WON("a"),
+        PLAYER_B_WON("b"),
+        ABANDONED("abandoned");
+
+        private final String wireName;
+
+        Result(String wireName) {
+            this.wireName = wireName;
+        }
+
+        public String wireName() {
+            return wireName;
+        }
+    }
+
+    /**
+     * Builds a record from the players' point of view, putting them in stored order.
+     *
+     * @param first   the player who made the first move
+     * @param second  the other player
+     * @param winner  the winner's name, or null for a draw or an abandoned game
+     */
+    public static GameRecord of(String first, String second, String winner, boolean abandoned,
+                                long startedAt, long endedAt, byte[] moves) {
+        boolean firstIsA = first.compareTo(second) <= 0;
+        String playerA = firstIsA ? first : second;
+        String playerB = firstIsA ? second : first;
+        Result result;
+        if (abandoned) result = Result.ABANDONED;
+        else if (winner == null) result = Result.DRAW;
+        else result = winner.equals(playerA) ? Result.PLAYER_A_WON : Result.PLAYER_B_WON;
+        return new GameRecord(0, playerA, playerB, result, firstIsA, startedAt, endedAt, moves);
+    }
+
+    /**
+     * @return a copy with the database id filled in
+     */
+    public GameRecord withId(long newId) {
+        return new GameRecord(newId, playerA, playerB, result, playerAStarted, startedAt, endedAt, moves);
+    }
+
+    /**
+     * @return the wire form: {@code id,playerA,playerB,result,a|b started,startedAt,endedAt,movesHex}
+     */
+    public String toWire() {
+        return id + "," + playerA + "," + playerB + "," + result.wireName() + "," + (playerAStarted ? "a" : "b")
+                + "," + startedAt + "," + endedAt + "," + HexFormat.of().formatHex(moves);
+    }
+}
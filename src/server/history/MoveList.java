@@ -0,0 +1,91 @@
+package server.history;
+
+/**
+ * The moves of one Quarto game in compact form.
+ *
+ * A game alternates between giving the opponent a piece and placing it, so after the first
+ * move the kind of every move is implied and only its value (a piece id or a square
+ * {@code row * 4 + col}, both 0-15) needs storing. Each value takes one nibble:
+ * {@code [count | 0x80 if the first move is a placement][two values per byte...]}.
+ * A full game of 16 gifts and 16 placements fits in 17 bytes.
+ */
+public class MoveList {
+
+    public static final int MAX_MOVES = 32;
+    private static final int FIRST_IS_PLACE = 0x80;
+
+    private final byte[] values = new byte[MAX_MOVES];
+    private int count = 0;
+    private boolean firstIsPlace;
+
+    /**
+     * Records a placement. Ignored if the previous move was also a placement or the game is full.
+     *
+     * @return true if the move was recorded
+     */
+    public synchronized boolean place(int row, int col) {
+        return add(true, row * 4 + col);
+    }
+
+    /**
+     * Records a piece handed to the opponent. Ignored if the previous move was also a gift or the game is full.
+     *
+     * @return true if the move was recorded
+     */
+    public synchronized boolean choose(int piece) {
+        return add(false, piece);
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @return the compact encoding described above
+     */
+    public synchronized byte[] encode() {
+        byte[] out = new byte[1 + (count + 1) / 2];
+        out[0] = (byte) (count | (firstIsPlace ? FIRST_IS_PLACE : 0));
+        for (int i = 0; i < count; i++) {
+            out[1 + i / 2] |= (byte) ((i % 2 == 0) ? values[i] << 4 : values[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Decodes moves into readable form, e.g. {@code "C5 P12 C3 ..."} (C = piece given, P = square placed).
+     */
+    public static String describe(byte[] encoded) {
+        if (encoded.length == 0) return "";
+        int count = encoded[0] & 0x3F;
+        boolean place = (encoded[0] & FIRST_IS_PLACE) != 0;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count && 1 + i / 2 < encoded.length; i++) {
+            int value = (i % 2 == 0) ? (encoded[1 + i / 2] >> 4) & 0x0F : encoded[1 + i / 2] & 0x0F;
+            if (i > 0) sb.append(' ');
+            sb.append(place ? 'P' : 'C').append(value);
+            place = !place;
+        }
+        return sb.toString();
+    }
+
+    private boolean add(boolean isPlace, int value) {
+        if (value < 0 || value > 15 || count == MAX_MOVES) return false;
+        if (count == 0) {
+            firstIsPlace = isPlace;
+        } else if (isPlace == isPlaceAt(count - 1)) {
+            return false;   // Out of turn; the players' clients enforce the real turn order
+        }
+        values[count++] = (byte) value;
+        return true;
+    }
+
+    private boolean isPlaceAt(int index) {
+        return (index % 2 == 0) == firstIsPlace;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return describe(encode());
+    }
+}
@@ -0,0 +1,399 @@
+package server.leaderboard;
+
+import server.db.GameResult;
+import server.model.PlayerStats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory leaderboard, ordered by ranking (highest first) and then username.
+ *
+ * It is loaded once from the database and then kept current by applying each game result
+ * as it is written, so reads never touch MySQL. Full snapshots are lock-free and weakly
+ * consistent: a reader racing an update may briefly miss the player being moved.
+ * Paged and rank queries go through an order-statistic tree under a read lock, so they see a
+ * consistent ordering and find a player's exact rank in O(log n). Updates are serialized.
+ *
+ * Every change bumps a version number, and the version each player last changed in is kept,
+ * so clients holding a copy can ask for just the rows changed since the version they have.
+ * Versions restart on every load, under a new random epoch.
+ */
+public class Leaderboard {
+
+    /**
+     * Best ranking first, ties by username: the order of the database's ranking index.
+     */
+    public static final Comparator<PlayerStats> ORDER = Comparator
+            .comparingDouble(PlayerStats::ranking).reversed()
+            .thenComparing(PlayerStats::username);
+
+    private final ConcurrentSkipListSet<PlayerStats> ranked = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<String, PlayerStats> byName = new ConcurrentHashMap<>();
+    private final OrderStatisticTree<PlayerStats> index = new OrderStatisticTree<>(ORDER);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean loaded = false;
+    private long loadedSeq;            // Journal sequence number the loaded snapshot already includes
+    private final List<AppliedResult> beforeLoad = new ArrayList<>();   // Results that arrived while the snapshot was being read
+
+    private long epoch;                                                 // Identifies this load; versions from another epoch mean nothing
+    private long version;                                               // Bumped by every change after the load
+    private final Map<String, Long> changedIn = new HashMap<>();        // Player -> version of their latest change
+    private final NavigableMap<Long, String> changes = new TreeMap<>(); // Version -> player, latest change per player only
+    private volatile Runnable changeListener;
+
+    /**
+     * @return true once the leaderboard has been loaded from the database
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Sets a callback run after every change, including a reload. It runs under the update lock,
+     * so it must only schedule work, not read the leaderboard.
+     */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * Replaces the contents with a database snapshot.
+     *
+     * @param entries  every player
+     * @param asOfSeq  the last journaled result the snapshot includes; older results are ignored by {@link #apply}
+     */
+    public void load(Collection<PlayerStats> entries, long asOfSeq) {
+        lock.writeLock().lock();
+        try {
+            ranked.clear();
+            byName.clear();
+            index.clear();
+            changedIn.clear();
+            changes.clear();
+            for (PlayerStats entry : entries) {
+                insert(entry);
+            }
+            epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+            version = 0;
+            loadedSeq = asOfSeq;
+            loaded = true;
+            for (AppliedResult applied : beforeLoad) {
+                if (applied.result == null) addPlayer(applied.username);
+                else apply(applied.seq, applied.username, applied.result);
+            }
+            beforeLoad.clear();
+            notifyChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a game result that has been written to the database.
+     */
+    public void apply(long seq, String username, GameResult result) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                // The snapshot being read may or may not include this result; decide once it is loaded
+                beforeLoad.add(new AppliedResult(seq, username, result));
+                return;
+            }
+            if (seq <= loadedSeq) return;              // Already part of the loaded snapshot
+            PlayerStats previous = byName.get(username);
+            if (previous == null) return;              // Unknown player, the database update matched nothing either
+            ranked.remove(previous);
+            index.remove(previous);
+            insert(previous.withResult(result));
+            markChanged(username);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a newly registered player with no games.
+     */
+    public void addPlayer(String username) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                beforeLoad.add(new AppliedResult(Long.MAX_VALUE, username, null));
+                return;
+            }
+            if (byName.containsKey(username)) return;
+            insert(PlayerStats.newPlayer(username));
+            markChanged(username);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insert(PlayerStats entry) {
+        byName.put(entry.username(), entry);
+        ranked.add(entry);
+        index.add(entry);
+    }
+
+    private void markChanged(String username) {
+        version++;
+        Long previous = changedIn.put(username, version);
+        if (previous != null) changes.remove(previous);
+        changes.put(version, username);
+        notifyChanged();
+    }
+
+    private void notifyChanged() {
+        Runnable listener = changeListener;
+        if (listener != null) listener.run();
+    }
+
+    /**
+     * @return the player's current entry, or null if unknown
+     */
+    public PlayerStats get(String username) {
+        return byName.get(username);
+    }
+
+    /**
+     * @return every player, best first
+     */
+    public List<PlayerStats> snapshot() {
+        return new ArrayList<>(ranked);
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    /**
+     * @return the player's 1-based rank, or 0 if unknown
+     */
+    public int rankOf(String username) {
+        lock.readLock().lock();
+        try {
+            PlayerStats entry = byName.get(username);
+            return (entry == null) ? 0 : index.rankOf(entry) + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the best {@code count} players
+     */
+    public Page top(int count) {
+        return pageAt(0, count);
+    }
+
+    /**
+     * @return up to {@code count} players ranked after the cursor, which is the
+     * {@link Page#getNextCursor() next cursor} of the previous page
+     */
+    public Page after(Cursor cursor, int count) {
+        lock.readLock().lock();
+        try {
+            // Players who moved since the previous page do not shift this one
+            PlayerStats key = new PlayerStats(cursor.username, 0, 0, 0, 0, 0, cursor.ranking);
+            int from = index.rankOf(key);
+            PlayerStats atCursor = (from < index.size()) ? index.get(from) : null;
+            if (atCursor != null && ORDER.compare(atCursor, key) == 0) from++;
+            return pageAt(from, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the player and up to {@code radius} players on either side, or an empty page if the player is unknown
+     */
+    public Page around(String username, int radius) {
+        lock.readLock().lock();
+        try {
+            PlayerStats entry = byName.get(username);
+            if (entry == null) return new Page(0, index.size(), List.of());
+            int rank = index.rankOf(entry);
+            int from = Math.max(0, rank - radius);
+            return pageAt(from, rank - from + radius + 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the players that changed after the given version, as of the current version.
+     * Asks for a reset instead when the version is from another epoch or more than
+     * {@code limit} players changed, in which case the client should reload from the top.
+     *
+     * @param epoch        the epoch of the caller's copy, 0 if it has none
+     * @param sinceVersion the version of the caller's copy
+     */
+    public Changes changesSince(long epoch, long sinceVersion, int limit) {
+        lock.readLock().lock();
+        try {
+            if (epoch != this.epoch || sinceVersion < 0 || sinceVersion > version) {
+                return new Changes(this.epoch, version, true, List.of());
+            }
+            List<PlayerStats> changed = new ArrayList<>();
+            for (String username : changes.tailMap(sinceVersion, false).values()) {
+                if (changed.size() == limit) {
+                    return new Changes(this.epoch, version, true, List.of());
+                }
+                changed.add(byName.get(username));
+            }
+            return new Changes(this.epoch, version, false, changed);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Page pageAt(int from, int count) {
+        lock.readLock().lock();
+        try {
+            return new Page(from + 1, index.size(), index.range(from, Math.max(0, count)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Position in the ranking order to continue a paged read from.
+     * Encoded on the wire as {@code <ranking>/<username>}.
+     */
+    public static class Cursor {
+        private final double ranking;
+        private final String username;
+
+        public Cursor(double ranking, String username) {
+            this.ranking = ranking;
+            this.username = username;
+        }
+
+        /**
+         * @return the cursor, or null if the text is not a valid cursor
+         */
+        public static Cursor parse(String text) {
+            int slash = text.indexOf('/');
+            if (slash <= 0) return null;
+            try {
+                return new Cursor(Double.parseDouble(text.substring(0, slash)), text.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return ranking + "/" + username;
+        }
+    }
+
+    /**
+     * A run of consecutive players from the ranking.
+     */
+    public static class Page {
+        private final int firstRank;
+        private final int total;
+        private final List<PlayerStats> entries;
+
+        Page(int firstRank, int total, List<PlayerStats> entries) {
+            this.firstRank = firstRank;
+            this.total = total;
+            this.entries = entries;
+        }
+
+        /**
+         * @return the 1-based rank of the first entry
+         */
+        public int getFirstRank() { return firstRank; }
+
+        /**
+         * @return the number of players on the whole leaderboard
+         */
+        public int getTotal() { return total; }
+
+        public List<PlayerStats> getEntries() { return entries; }
+
+        /**
+         * @return where the next page starts, or null if this page reaches the end
+         */
+        public Cursor getNextCursor() {
+            if (entries.isEmpty() || firstRank - 1 + entries.size() >= total) return null;
+            PlayerStats last = entries.get(entries.size() - 1);
+            return new Cursor(last.ranking(), last.username());
+        }
+    }
+
+    /**
+     * The players changed since a client's version, or a request to reload everything.
+     */
+    public static class Changes {
+        private final long epoch;
+        private final long version;
+        private final boolean reset;
+        private final List<PlayerStats> entries;
+
+        Changes(long epoch, long version, boolean reset, List<PlayerStats> entries) {
+            this.epoch = epoch;
+            this.version = version;
+            this.reset = reset;
+            this.entries = entries;
+        }
+
+        public long getEpoch() { return epoch; }
+
+        /**
+         * @return the version these changes bring the client up to
+         */
+        public long getVersion() { return version; }
+
+        /**
+         * @return true if the client must drop its copy and reload from the top
+         */
+        public boolean isReset() { return reset; }
+
+        /**
+         * @return the current entry of each changed player, oldest change first
+         */
+        public List<PlayerStats> getEntries() { return entries; }
+
+        /**
+         * Appends {@code <epoch> <version> delta|reset <rows>}, rows in the getAllPlayers format.
+         */
+        public void appendWire(StringBuilder builder) {
+            builder.append(epoch).append(' ').append(version).append(' ')
+                    .append(reset ? "reset" : "delta").append(' ');
+            for (PlayerStats entry : entries) {
+                entry.appendWire(builder);
+            }
+        }
+    }
+
+    /**
+     * A result or, with a null result, a registration received before the snapshot was loaded.
+     */
+    private static class AppliedResult {
+        final long seq;
+        final String username;
+        final GameResult result;
+
+        AppliedResult(long seq, String username, GameResult result) {
+            this.seq = seq;
+            this.username = username;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package server.leaderboard;
+
+import server.protocol.OutboundMessage;
+import server.session.Participant;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes leaderboard changes to subscribed clients as {@code leaderboardUpdate} lines, in the same
+ * {@code <epoch> <version> delta|reset <rows>} format as a leaderboardChanges response.
+ *
+ * Changes are coalesced: the first change after a quiet period schedules a flush one window later,
+ * and everything that changed in the meantime goes out together. Subscribers at the same version
+ * share one encoded message per flush. A subscriber whose connection is {@link Participant#isBehind()
+ * behind} is skipped and later catches up with a single update from its own version (or a reset if it
+ * fell too far behind), so updates never pile up for a client that stops reading.
+ */
+public class LeaderboardFeed {
+
+    private final Leaderboard leaderboard;
+    private final long windowMs;
+    private final int maxChanges;
+    private final Map<Participant, Subscription> subscribers = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param windowMs   how long changes are collected before they are pushed
+     * @param maxChanges a subscriber further behind than this many players gets a reset instead
+     */
+    public LeaderboardFeed(Leaderboard leaderboard, long windowMs, int maxChanges) {
+        this.leaderboard = leaderboard;
+        this.windowMs = windowMs;
+        this.maxChanges = maxChanges;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "leaderboard-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        leaderboard.setChangeListener(this::changed);
+    }
+
+    /**
+     * Builds a feed with the window from the quarto.leaderboard.pushWindowMs system property (default 500).
+     */
+    public static LeaderboardFeed fromSystemProperties(Leaderboard leaderboard, int maxChanges) {
+        return new LeaderboardFeed(leaderboard,
+                Long.getLong("quarto.leaderboard.pushWindowMs", 500),
+                maxChanges);
+    }
+
+    /**
+     * Starts pushing changes made after the given version to a client.
+     * Subscribing again just moves the client's version.
+     *
+     * @param epoch   the epoch of the client's copy, 0 if it has none (its first update is then a reset)
+     * @param version the version of the client's copy
+     */
+    public void subscribe(Participant subscriber, long epoch, long version) {
+        subscribers.put(subscriber, new Subscription(subscriber, epoch, version));
+        changed();   // Catch up on anything that changed since the client's version
+    }
+
+    public void unsubscribe(Participant subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Schedules a flush unless one is already pending. Cheap; called on every leaderboard change.
+     */
+    private void changed() {
+        if (subscribers.isEmpty()) return;
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        boolean skipped = false;
+        // Usually every subscriber is at the same version, so the changes are read and encoded once
+        Map<Since, Update> batch = new HashMap<>();
+        for (Subscription subscription : subscribers.values()) {
+            if (subscription.subscriber.isBehind()) {
+                skipped = true;     // Still has earlier messages to write
+                continue;
+            }
+            Update update = batch.computeIfAbsent(new Since(subscription.epoch, subscription.version), this::read);
+            if (update.message() == null) continue;   // Already up to date
+            subscription.epoch = update.changes().getEpoch();
+            subscription.version = update.changes().getVersion();
+            subscription.subscriber.send(update.message());
+        }
+        if (skipped) changed();   // Look at the slow subscribers again next window
+    }
+
+    private Update read(Since since) {
+        Leaderboard.Changes changes = leaderboard.changesSince(since.epoch(), since.version(), maxChanges);
+        if (!changes.isReset() && changes.getEntries().isEmpty()) return new Update(changes, null);
+        StringBuilder builder = new StringBuilder("leaderboardUpdate ");
+        changes.appendWire(builder);
+        return new Update(changes, OutboundMessage.of(builder.toString()));
+    }
+
+    /**
+     * The version a subscriber has been sent. Only changed by the flush thread.
+     */
+    private static class Subscription {
+        final Participant subscriber;
+        volatile long epoch;
+        volatile long version;
+
+        Subscription(Participant subscriber, long epoch, long version) {
+            this.subscriber = subscriber;
+            this.epoch = epoch;
+            this.version = version;
+        }
+    }
+
+    private record Since(long epoch, long version) {
+    }
+
+    /**
+     * The changes since one version and their encoded update, or a null message if there are none.
+     */
+    private record Update(Leaderboard.Changes changes, OutboundMessage message) {
+    }
+}
@@ -0,0 +1,200 @@
+package server.log;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Takes log events off the calling threads. Events go into a fixed-size ring buffer and a single
+ * writer thread formats them in batches, writing each batch to a rolling file (and optionally the
+ * console) with one write and one flush. Logging never blocks the caller: if the buffer is full the
+ * event is dropped and counted, and the count is written out once there is room again.
+ *
+ * The file rolls over when it passes {@code maxBytes}: {@code server.log} becomes {@code server.log.1},
+ * the previous {@code .1} becomes {@code .2}, and so on up to {@code maxFiles}.
+ */
+final class AsyncAppender {
+
+    private static final int MAX_BATCH = 512;
+
+    private final BlockingQueue<LogEvent> buffer;
+    private final Path file;                // Null to log to the console only
+    private final long maxBytes;
+    private final int maxFiles;
+    private final PrintStream console;      // Null to log to the file only
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder appended = new LongAdder();
+    private volatile long written;          // Events written so far; only the writer thread updates it
+    private final Thread writerThread;
+
+    private Writer fileWriter;
+    private long fileSize;
+
+    AsyncAppender(int capacity, Path file, long maxBytes, int maxFiles, PrintStream console) {
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.console = console;
+        this.writerThread = new Thread(this::writeLoop, "log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    void append(LogEvent event) {
+        if (buffer.offer(event)) {
+            appended.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * @return the number of events dropped because the buffer was full
+     */
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Waits up to the given time for the events logged so far to be written.
+     */
+    void flush(long waitMillis) {
+        long target = appended.sum();
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (written < target && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<LogEvent> batch = new ArrayList<>(MAX_BATCH);
+        StringBuilder text = new StringBuilder(64 * 1024);
+        long reportedDrops = 0;
+        while (true) {
+            try {
+                LogEvent first = buffer.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    buffer.drainTo(batch, MAX_BATCH - 1);
+                }
+                long drops = dropped.sum();
+                if (batch.isEmpty() && drops == reportedDrops) continue;
+
+                for (LogEvent event : batch) {
+                    event.appendTo(text);
+                }
+                if (drops != reportedDrops) {
+                    text.append("Log buffer full, dropped ").append(drops - reportedDrops)
+                            .append(" events").append(System.lineSeparator());
+                    reportedDrops = drops;
+                }
+                write(text);
+                written += batch.size();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();    // Never let a bad event stop the writer
+            } finally {
+                batch.clear();
+                text.setLength(0);
+            }
+        }
+    }
+
+    private void write(StringBuilder text) {
+        if (console != null) {
+            console.print(text);
+            console.flush();
+        }
+        if (file == null) return;
+        try {
+            if (fileWriter == null) open();
+            fileWriter.append(text);
+            fileWriter.flush();
+            fileSize += utf8Length(text);
+            if (fileSize >= maxBytes) roll();
+        } catch (IOException e) {
+            System.err.println("Error writing log file " + file + ": " + e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    /**
+     * @return the number of bytes the text takes in UTF-8, as written to the file, without encoding it
+     */
+    static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes++;    // Unpaired; the encoder writes '?'
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        fileSize = Files.exists(file) ? Files.size(file) : 0;
+        fileWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void roll() throws IOException {
+        closeQuietly();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = rolled(i);
+            if (Files.exists(older)) {
+                Files.move(older, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles >= 1) {
+            Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        open();
+    }
+
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeQuietly() {
+        if (fileWriter == null) return;
+        try {
+            fileWriter.close();
+        } catch (IOException ignored) {
+            // Reopened on the next write
+        }
+        fileWriter = null;
+    }
+}
@@ -0,0 +1,26 @@
+package server.log;
+
+/**
+ * Log levels, least to most severe. A logger set to a level records that level and everything above it.
+ */
+public enum Level {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    /** Records nothing. */
+    OFF;
+
+    /**
+     * Parses a level name case-insensitively.
+     * @return the level, or the fallback if the name is null or unknown
+     */
+    public static Level parse(String name, Level fallback) {
+        if (name == null) return fallback;
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
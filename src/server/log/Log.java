@@ -0,0 +1,71 @@
+package server.log;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entry point of the server's logging. Each subsystem gets its own {@link Logger}, all sharing one
+ * {@link AsyncAppender}, so no logging call ever writes to a stream on the caller's thread.
+ *
+ * Configured from system properties when first used:
+ * <ul>
+ *   <li>quarto.log.level: default level of every subsystem (INFO)</li>
+ *   <li>quarto.log.level.&lt;subsystem&gt;: level of one subsystem, e.g. {@code -Dquarto.log.level.net=DEBUG}
+ *       or {@code OFF} to silence it</li>
+ *   <li>quarto.log.file: the log file (logs/server.log); empty to log to the console only</li>
+ *   <li>quarto.log.maxBytes / quarto.log.maxFiles: roll over size (10 MiB) and rolled files kept (5)</li>
+ *   <li>quarto.log.console: also write to stdout, from the writer thread (true)</li>
+ *   <li>quarto.log.bufferSize: events buffered before new ones are dropped (8192)</li>
+ * </ul>
+ */
+public final class Log {
+
+    private static final Level DEFAULT_LEVEL = Level.parse(System.getProperty("quarto.log.level"), Level.INFO);
+    private static final AsyncAppender APPENDER = createAppender();
+    private static final Map<String, Logger> LOGGERS = new ConcurrentHashMap<>();
+
+    private Log() {
+    }
+
+    /**
+     * @return the logger of the given subsystem, created on first use
+     */
+    public static Logger get(String subsystem) {
+        return LOGGERS.computeIfAbsent(subsystem, name ->
+                new Logger(name, Level.parse(System.getProperty("quarto.log.level." + name), DEFAULT_LEVEL), APPENDER));
+    }
+
+    /**
+     * Changes the level of a subsystem at runtime.
+     */
+    public static void setLevel(String subsystem, Level level) {
+        get(subsystem).setLevel(level);
+    }
+
+    /**
+     * @return the number of events dropped so far because logging could not keep up
+     */
+    public static long getDroppedCount() {
+        return APPENDER.getDroppedCount();
+    }
+
+    /**
+     * Waits briefly for buffered events to be written, e.g. before the process exits.
+     */
+    public static void flush() {
+        APPENDER.flush(2000);
+    }
+
+    private static AsyncAppender createAppender() {
+        String fileName = System.getProperty("quarto.log.file", "logs/server.log");
+        AsyncAppender appender = new AsyncAppender(
+                Integer.getInteger("quarto.log.bufferSize", 8192),
+                fileName.isEmpty() ? null : Path.of(fileName),
+                Long.getLong("quarto.log.maxBytes", 10L * 1024 * 1024),
+                Integer.getInteger("quarto.log.maxFiles", 5),
+                Boolean.parseBoolean(System.getProperty("quarto.log.console", "true")) ? System.out : null);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> appender.flush(2000), "log-flush"));
+        return appender;
+    }
+}
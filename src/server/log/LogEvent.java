@@ -0,0 +1,46 @@
+package server.log;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+
+/**
+ * One log call, captured as-is on the calling thread and formatted on the writer thread.
+ */
+record LogEvent(long timestamp, Level level, String subsystem, String thread,
+                String template, Object[] args, Throwable error) {
+
+    /**
+     * Appends the event as one line, {@code <time> <LEVEL> <subsystem> [<thread>] <message>},
+     * followed by the stack trace if there is one.
+     */
+    void appendTo(StringBuilder out) {
+        out.append(Instant.ofEpochMilli(timestamp)).append(' ');
+        String name = level.name();
+        out.append(name);
+        for (int i = name.length(); i < 5; i++) out.append(' ');
+        out.append(' ').append(subsystem).append(" [").append(thread).append("] ");
+        appendMessage(out);
+        out.append(System.lineSeparator());
+        if (error != null) {
+            StringWriter trace = new StringWriter();
+            error.printStackTrace(new PrintWriter(trace));
+            out.append(trace);
+        }
+    }
+
+    private void appendMessage(StringBuilder out) {
+        if (args == null) {
+            out.append(template);
+            return;
+        }
+        int argIndex = 0;
+        int from = 0;
+        int placeholder;
+        while (argIndex < args.length && (placeholder = template.indexOf("{}", from)) >= 0) {
+            out.append(template, from, placeholder).append(args[argIndex++]);
+            from = placeholder + 2;
+        }
+        out.append(template, from, template.length());
+    }
+}
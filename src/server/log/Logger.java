@@ -0,0 +1,106 @@
+package server.log;
+
+/**
+ * Logger for one subsystem. Messages are templates with {@code {}} placeholders that are only
+ * filled in on the log writer thread, so a call below the logger's level costs one comparison:
+ * no string is built and, thanks to the fixed-arity overloads, no argument array either.
+ * Because formatting happens later, arguments should be values that do not change afterwards.
+ *
+ * Obtain instances from {@link Log#get(String)}.
+ */
+public final class Logger {
+
+    private final String subsystem;
+    private final AsyncAppender appender;
+    private volatile Level level;
+
+    Logger(String subsystem, Level level, AsyncAppender appender) {
+        this.subsystem = subsystem;
+        this.level = level;
+        this.appender = appender;
+    }
+
+    public String getSubsystem() {
+        return subsystem;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Changes this subsystem's level at runtime, e.g. to turn on DEBUG while investigating.
+     */
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    public boolean isEnabled(Level candidate) {
+        return candidate.compareTo(level) >= 0 && candidate != Level.OFF;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String message) {
+        if (isEnabled(Level.DEBUG)) log(Level.DEBUG, message, null, null);
+    }
+
+    public void debug(String template, Object arg) {
+        if (isEnabled(Level.DEBUG)) log(Level.DEBUG, template, new Object[]{arg}, null);
+    }
+
+    public void debug(String template, Object arg1, Object arg2) {
+        if (isEnabled(Level.DEBUG)) log(Level.DEBUG, template, new Object[]{arg1, arg2}, null);
+    }
+
+    public void info(String message) {
+        if (isEnabled(Level.INFO)) log(Level.INFO, message, null, null);
+    }
+
+    public void info(String template, Object arg) {
+        if (isEnabled(Level.INFO)) log(Level.INFO, template, new Object[]{arg}, null);
+    }
+
+    public void info(String template, Object arg1, Object arg2) {
+        if (isEnabled(Level.INFO)) log(Level.INFO, template, new Object[]{arg1, arg2}, null);
+    }
+
+    public void info(String template, Object arg1, Object arg2, Object arg3) {
+        if (isEnabled(Level.INFO)) log(Level.INFO, template, new Object[]{arg1, arg2, arg3}, null);
+    }
+
+    public void warn(String message) {
+        if (isEnabled(Level.WARN)) log(Level.WARN, message, null, null);
+    }
+
+    public void warn(String template, Object arg) {
+        if (isEnabled(Level.WARN)) log(Level.WARN, template, new Object[]{arg}, null);
+    }
+
+    public void warn(String template, Object arg1, Object arg2) {
+        if (isEnabled(Level.WARN)) log(Level.WARN, template, new Object[]{arg1, arg2}, null);
+    }
+
+    public void warn(String template, Object arg1, Object arg2, Object arg3) {
+        if (isEnabled(Level.WARN)) log(Level.WARN, template, new Object[]{arg1, arg2, arg3}, null);
+    }
+
+    public void error(String message, Throwable error) {
+        if (isEnabled(Level.ERROR)) log(Level.ERROR, message, null, error);
+    }
+
+    public void error(String template, Object arg, Throwable error) {
+        if (isEnabled(Level.ERROR)) log(Level.ERROR, template, new Object[]{arg}, error);
+    }
+
+    public void error(String template, Object arg1, Object arg2, Throwable error) {
+        if (isEnabled(Level.ERROR)) log(Level.ERROR, template, new Object[]{arg1, arg2}, error);
+    }
+
+    private void log(Level eventLevel, String template, Object[] args, Throwable error) {
+        appender.append(new LogEvent(System.currentTimeMillis(), eventLevel, subsystem,
+                Thread.currentThread().getName(), template, args, error));
+    }
+}
@@ -0,0 +1,20 @@
+package server.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A value read on demand, such as the number of open connections.
+ */
+public final class Gauge implements GaugeMBean {
+
+    private final LongSupplier supplier;
+
+    Gauge(LongSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    @Override
+    public long getValue() {
+        return supplier.getAsLong();
+    }
+}
@@ -0,0 +1,9 @@
+package server.metrics;
+
+/**
+ * JMX view of a {@link Gauge}.
+ */
+public interface GaugeMBean {
+
+    long getValue();
+}
@@ -0,0 +1,21 @@
+package server.metrics;
+
+/**
+ * JMX view of a {@link Histogram}. Times are in milliseconds.
+ */
+public interface HistogramMBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double get50thPercentileMillis();
+
+    double get90thPercentileMillis();
+
+    double get99thPercentileMillis();
+
+    double get999thPercentileMillis();
+}
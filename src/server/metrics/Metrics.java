@@ -0,0 +1,123 @@
+package server.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import server.log.Log;
+import server.log.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the server's metrics. Metrics are named with dots ({@code db.login}) and created on
+ * first use; callers should keep the returned instance rather than look it up on every update.
+ *
+ * Every metric is also registered as a JMX MBean ({@code quarto:type=Counter,name=...}), so it can be
+ * watched with JConsole or VisualVM, and {@link #startHttpEndpoint} serves all of them as plain text
+ * for a scraper.
+ */
+public final class Metrics {
+
+    private static final Logger LOG = Log.get("server");
+    private static final Map<String, Object> METRICS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return register(name, "Counter", Counter.class, new Counter());
+    }
+
+    public static Histogram histogram(String name) {
+        return register(name, "Histogram", Histogram.class, new Histogram());
+    }
+
+    /**
+     * Registers a gauge; registering the same name again keeps the first supplier.
+     */
+    public static Gauge gauge(String name, LongSupplier supplier) {
+        return register(name, "Gauge", Gauge.class, new Gauge(supplier));
+    }
+
+    private static <T> T register(String name, String type, Class<T> kind, T candidate) {
+        Object existing = METRICS.putIfAbsent(name, candidate);
+        if (existing != null) {
+            if (!kind.isInstance(existing)) {
+                throw new IllegalArgumentException("Metric " + name + " is not a " + type);
+            }
+            return kind.cast(existing);
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(candidate, new ObjectName("quarto:type=" + type + ",name=" + ObjectName.quote(name)));
+        } catch (JMException e) {
+            LOG.warn("Could not register metric {} with JMX: {}", name, e.getMessage());
+        }
+        return candidate;
+    }
+
+    /**
+     * Writes every metric in the Prometheus text format, names prefixed with {@code quarto_} and dots
+     * turned into underscores. Histograms are written as summaries in seconds.
+     */
+    public static void writeText(StringBuilder out) {
+        for (Map.Entry<String, Object> entry : new TreeMap<>(METRICS).entrySet()) {
+            String name = "quarto_" + entry.getKey().replace('.', '_');
+            Object metric = entry.getValue();
+            if (metric instanceof Counter counter) {
+                out.append("# TYPE ").append(name).append("_total counter\n");
+                out.append(name).append("_total ").append(counter.getCount()).append('\n');
+            } else if (metric instanceof Gauge gauge) {
+                out.append("# TYPE ").append(name).append(" gauge\n");
+                out.append(name).append(' ').append(gauge.getValue()).append('\n');
+            } else if (metric instanceof Histogram histogram) {
+                name += "_seconds";
+                out.append("# TYPE ").append(name).append(" summary\n");
+                for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+                    out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                            .append(histogram.getPercentileNanos(quantile) / 1e9).append('\n');
+                }
+                out.append(name).append("_sum ").append(histogram.getSumNanos() / 1e9).append('\n');
+                out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+                out.append(name).append("_max ").append(histogram.getMaxMillis() / 1e3).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Serves {@code GET /metrics} on the loopback interface only.
+     *
+     * @return the running server, or null if it could not be started
+     */
+    public static HttpServer startHttpEndpoint(int port) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", exchange -> {
+                StringBuilder text = new StringBuilder(8 * 1024);
+                writeText(text);
+                byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();     // Single dispatcher thread; scrapes are rare
+            LOG.info("Metrics at http://localhost:{}/metrics", port);
+            return server;
+        } catch (IOException e) {
+            LOG.warn("Could not start metrics endpoint on port {}: {}", port, e.getMessage());
+            return null;
+        }
+    }
+}
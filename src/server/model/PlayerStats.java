@@ -0,0 +1,51 @@
+package server.model;
+
+import server.db.GameResult;
+
+/**
+ * A player's statistics as the server keeps them: immutable, plain fields, no JavaFX.
+ * An update produces a new instance.
+ *
+ * @param username      the player's username
+ * @param gamesPlayed   total games played
+ * @param wins          number of wins
+ * @param draws         number of draws
+ * @param losses        number of losses
+ * @param winPercentage wins as a percentage of games played
+ * @param ranking       ranking score, win percentage weighted by experience
+ */
+public record PlayerStats(String username, int gamesPlayed, int wins, int draws, int losses,
+                          double winPercentage, double ranking) {
+
+    /**
+     * @return the statistics of a player who has not played yet
+     */
+    public static PlayerStats newPlayer(String username) {
+        return new PlayerStats(username, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @return the statistics after one more game; the derived fields use the same formula as the database
+     */
+    public PlayerStats withResult(GameResult result) {
+        int newGames = gamesPlayed + 1;
+        int newWins = wins + result.getWins();
+        double newWinPerc = newWins * 100.0 / newGames;
+        double newRanking = newWinPerc * (1 + Math.log(newGames));
+        return new PlayerStats(username, newGames, newWins, draws + result.getDraws(), losses + result.getLosses(), newWinPerc, newRanking);
+    }
+
+    /**
+     * Appends this player as one getAllPlayers row: {@code name,win%,games,ranking,wins,draws,losses;}
+     */
+    public void appendWire(StringBuilder builder) {
+        builder.append(username)
+                .append(",").append(winPercentage)
+                .append(",").append(gamesPlayed)
+                .append(",").append(ranking)
+                .append(",").append(wins)
+                .append(",").append(draws)
+                .append(",").append(losses)
+                .append(";");
+    }
+}
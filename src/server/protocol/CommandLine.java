@@ -0,0 +1,132 @@
+package server.protocol;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A received text line split into space-separated tokens in place: only token offsets are
+ * recorded, so parsing allocates nothing. Tokens are decoded into strings only on request.
+ * Tokens follow {@code String.split(" ")}: consecutive spaces give empty tokens.
+ *
+ * A leading {@code @<id>} tag is taken off and exposed as the {@link #getRequestId() request ID}.
+ * One instance is reused for every line of a connection, so it is not thread-safe.
+ */
+public final class CommandLine {
+
+    public static final int NO_REQUEST_ID = -1;
+    private static final int MAX_TOKENS = 16;   // Later tokens are only reachable through restFrom
+
+    private final int[] starts = new int[MAX_TOKENS];
+    private final int[] ends = new int[MAX_TOKENS];
+    private byte[] buffer;
+    private int length;
+    private int count;
+    private int requestId;
+
+    /**
+     * Tokenizes a line. The buffer is not copied and must not change while this line is in use.
+     *
+     * @return false if the line starts with a malformed request tag
+     */
+    public boolean parse(byte[] buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+        this.count = 0;
+        this.requestId = NO_REQUEST_ID;
+        int position = 0;
+        if (length > 0 && buffer[0] == '@') {
+            int end = indexOfSpace(1);
+            long id = parseNumber(1, end);
+            if (id < 0 || id > Integer.MAX_VALUE) return false;
+            requestId = (int) id;
+            position = Math.min(end + 1, length);
+        }
+        while (position <= length && count < MAX_TOKENS) {
+            int end = indexOfSpace(position);
+            starts[count] = position;
+            ends[count] = end;
+            count++;
+            position = end + 1;
+        }
+        // Like String.split, trailing empty tokens do not count
+        while (count > 1 && starts[count - 1] == ends[count - 1]) count--;
+        return true;
+    }
+
+    /**
+     * @return the request ID from the tag, or {@link #NO_REQUEST_ID} if the line was not tagged
+     */
+    public int getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return the number of tokens after the tag, the command included (at most 16)
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the ID of the command (token 0) in the given table
+     */
+    public int command(CommandTable table) {
+        return (count == 0) ? CommandTable.UNKNOWN : table.lookup(buffer, starts[0], ends[0] - starts[0]);
+    }
+
+    /**
+     * @return the token as a non-negative decimal number, or -1 if it is missing or not a number
+     */
+    public int intAt(int index) {
+        if (index >= count) return -1;
+        long value = parseNumber(starts[index], ends[index]);
+        return (value > Integer.MAX_VALUE) ? -1 : (int) value;
+    }
+
+    /**
+     * @return the line from the start of the given token to the end, or "" if there is no such token
+     */
+    public String restFrom(int index) {
+        if (index >= count) return "";
+        return new String(buffer, starts[index], length - starts[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number of bytes from the start of the given token to the end of the line,
+     * or 0 if there is no such token
+     */
+    public int restLength(int index) {
+        return (index >= count) ? 0 : length - starts[index];
+    }
+
+    /**
+     * Copies the undecoded bytes of {@link #restFrom(int)} into {@code target} at {@code offset}.
+     */
+    public void copyRestFrom(int index, byte[] target, int offset) {
+        if (index < count) System.arraycopy(buffer, starts[index], target, offset, length - starts[index]);
+    }
+
+    /**
+     * @return the line without its tag
+     */
+    @Override
+    public String toString() {
+        return restFrom(0);
+    }
+
+    private int indexOfSpace(int from) {
+        int i = from;
+        while (i < length && buffer[i] != ' ') i++;
+        return i;
+    }
+
+    private long parseNumber(int from, int to) {
+        if (from >= to || to - from > 10) return -1;
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package server.protocol;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Maps command names to small integer IDs straight from the received bytes, without building a
+ * string. Names are hashed once when registered; a lookup hashes the token and compares bytes.
+ * Fill the table at startup; lookups are then safe from any thread.
+ */
+public final class CommandTable {
+
+    public static final int UNKNOWN = 0;
+
+    private final byte[][] names;
+    private final int[] ids;
+    private final int mask;
+
+    /**
+     * @param capacity the most commands that will be registered
+     */
+    public CommandTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;   // Open addressing, at most half full
+        this.names = new byte[size][];
+        this.ids = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @param id a non-zero ID to return for this command
+     */
+    public CommandTable register(String name, int id) {
+        if (id == UNKNOWN) throw new IllegalArgumentException("Command ID 0 is reserved");
+        byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        int slot = hash(bytes, 0, bytes.length) & mask;
+        while (names[slot] != null) {
+            if (equals(names[slot], bytes, 0, bytes.length)) throw new IllegalArgumentException("Duplicate command: " + name);
+            slot = (slot + 1) & mask;
+        }
+        names[slot] = bytes;
+        ids[slot] = id;
+        return this;
+    }
+
+    /**
+     * @return the ID registered for the command in {@code buffer[offset, offset + length)}, or {@link #UNKNOWN}
+     */
+    public int lookup(byte[] buffer, int offset, int length) {
+        int slot = hash(buffer, offset, length) & mask;
+        byte[] name;
+        while ((name = names[slot]) != null) {
+            if (equals(name, buffer, offset, length)) return ids[slot];
+            slot = (slot + 1) & mask;
+        }
+        return UNKNOWN;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(byte[] name, byte[] buffer, int offset, int length) {
+        if (name.length != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (name[i] != buffer[offset + i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,162 @@
+package server.protocol;
+
+import common.protocol.BinaryCodec;
+import common.protocol.Frame;
+import common.protocol.WireFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An outgoing protocol message that is encoded once and then shared by every recipient.
+ * Each wire format is encoded lazily the first time a connection using it needs the message,
+ * and cached from then on. The encoded bytes are never handed out, so one instance can safely
+ * be written to any number of connections from any number of threads.
+ */
+public final class OutboundMessage {
+
+    // There are only 16 squares and 16 pieces, so every relayed move is one of these 32 messages
+    private static final OutboundMessage[] PLACE_MESSAGES = new OutboundMessage[16];
+    private static final OutboundMessage[] CHOOSE_MESSAGES = new OutboundMessage[16];
+
+    static {
+        for (int i = 0; i < 16; i++) {
+            PLACE_MESSAGES[i] = ofFrame(BinaryCodec.OP_MOVE_PLACE, new byte[]{(byte) i});
+            CHOOSE_MESSAGES[i] = ofFrame(BinaryCodec.OP_MOVE_CHOOSE, new byte[]{(byte) i});
+            for (WireFormat format : WireFormat.values()) {
+                PLACE_MESSAGES[i].size(format);     // Encode up front, not on the first relay
+                CHOOSE_MESSAGES[i].size(format);
+            }
+        }
+    }
+
+    private final Frame frame;          // Set when the message was built from a binary frame
+    private final boolean sheddable;    // May be dropped for a client that is falling behind
+    private volatile String line;
+    private volatile byte[] textBytes;
+    private volatile byte[] binaryBytes;
+
+    private OutboundMessage(String line, Frame frame, boolean sheddable) {
+        this.line = line;
+        this.frame = frame;
+        this.sheddable = sheddable;
+        this.binaryBytes = (frame == null) ? null : BinaryCodec.frame(frame.getOpcode(), frame.getPayload(), frame.getRequestId());
+    }
+
+    /**
+     * Creates a message from a single text protocol line (without the trailing newline).
+     */
+    public static OutboundMessage of(String line) {
+        return new OutboundMessage(line, null, false);
+    }
+
+    /**
+     * Creates a text message that a slow client can do without, such as chat.
+     * It is dropped rather than queued once the client's backlog passes its soft limit.
+     */
+    public static OutboundMessage ofSheddable(String line) {
+        return new OutboundMessage(line, null, true);
+    }
+
+    /**
+     * Creates a sheddable text message of {@code prefix} followed by the rest of a received line from
+     * the given token, copied without decoding it. Both wire formats are built from the bytes, so
+     * relaying e.g. chat costs one array per message and no strings.
+     */
+    public static OutboundMessage ofSheddable(byte[] prefix, CommandLine received, int fromToken) {
+        int restLength = received.restLength(fromToken);
+        byte[] text = new byte[prefix.length + restLength + 1];
+        System.arraycopy(prefix, 0, text, 0, prefix.length);
+        received.copyRestFrom(fromToken, text, prefix.length);
+        text[text.length - 1] = '\n';
+        OutboundMessage message = new OutboundMessage(null, null, true);
+        message.textBytes = text;
+        return message;
+    }
+
+    /**
+     * Creates a message from a binary opcode and payload. The text form is derived on demand.
+     */
+    public static OutboundMessage ofFrame(byte opcode, byte[] payload) {
+        return ofFrame(new Frame(opcode, payload));
+    }
+
+    /**
+     * Creates a message from a decoded frame, keeping its request ID.
+     */
+    public static OutboundMessage ofFrame(Frame frame) {
+        return new OutboundMessage(null, frame, false);
+    }
+
+    /**
+     * @return the shared, already-encoded message for a placement on the 4x4 board
+     */
+    public static OutboundMessage movePlace(int row, int col) {
+        if (row < 0 || row > 3 || col < 0 || col > 3) {
+            return ofFrame(BinaryCodec.OP_MOVE_PLACE, new byte[]{(byte) (row * 4 + col)});
+        }
+        return PLACE_MESSAGES[row * 4 + col];
+    }
+
+    /**
+     * @return the shared, already-encoded message for choosing one of the 16 pieces
+     */
+    public static OutboundMessage moveChoose(int pieceId) {
+        if (pieceId < 0 || pieceId > 15) {
+            return ofFrame(BinaryCodec.OP_MOVE_CHOOSE, new byte[]{(byte) pieceId});
+        }
+        return CHOOSE_MESSAGES[pieceId];
+    }
+
+    public boolean isSheddable() {
+        return sheddable;
+    }
+
+    /**
+     * Writes the message encoded for the given format. The caller is responsible for flushing.
+     */
+    public void writeTo(OutputStream out, WireFormat format) throws IOException {
+        out.write(encoded(format));
+    }
+
+    /**
+     * @return the number of bytes this message occupies on the wire in the given format
+     */
+    public int size(WireFormat format) {
+        return encoded(format).length;
+    }
+
+    private byte[] encoded(WireFormat format) {
+        // Racing threads may both encode; the results are identical, so the extra work is harmless
+        if (format == WireFormat.BINARY) {
+            byte[] bytes = binaryBytes;
+            if (bytes == null) {
+                byte[] text = textBytes;
+                bytes = (line == null && text != null)   // Built from raw bytes, never tagged
+                        ? BinaryCodec.frame(BinaryCodec.OP_TEXT, text, 0, text.length - 1, Frame.NO_REQUEST_ID)
+                        : BinaryCodec.encodeLine(toString());
+                binaryBytes = bytes;
+            }
+            return bytes;
+        }
+        byte[] bytes = textBytes;
+        if (bytes == null) {
+            bytes = (toString() + "\n").getBytes(StandardCharsets.UTF_8);
+            textBytes = bytes;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        String text = line;
+        if (text == null) {
+            byte[] bytes = textBytes;
+            text = (frame != null) ? BinaryCodec.toLine(frame)
+                    : new String(bytes, 0, bytes.length - 1, StandardCharsets.UTF_8);
+            line = text;
+        }
+        return text;
+    }
+}
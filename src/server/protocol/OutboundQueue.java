@@ -0,0 +1,210 @@
+package server.protocol;
+
+import common.protocol.WireFormat;
+import server.log.Log;
+import server.log.Logger;
+import server.metrics.Counter;
+import server.metrics.Histogram;
+import server.metrics.Metrics;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outgoing messages for one connection, written by that connection's own writer thread.
+ * Senders only enqueue, so a slow socket never blocks the thread of whoever is sending to it.
+ * Each time the writer wakes up it writes everything queued so far and flushes once.
+ *
+ * The backlog is bounded in bytes. Past the soft limit, sheddable messages (chat) are dropped and
+ * the connection reports itself as {@link #isBehind() behind}; past the hard limit the connection
+ * is given up on and the failure callback is run, once. The same happens if the writer fails.
+ */
+public class OutboundQueue {
+
+    private static final Logger LOG = Log.get("net");
+    private static final Counter SHED = Metrics.counter("net.outbound.shed");
+    private static final Counter OVERFLOWS = Metrics.counter("net.outbound.overflows");
+    private static final Counter BYTES = Metrics.counter("net.outbound.bytes");
+    private static final Histogram DELAY = Metrics.histogram("net.outbound.delay");   // Queued until flushed
+
+    private static final int MAX_BATCH = 256;                  // Messages written per flush, at most
+    private static final Entry CLOSE = new Entry(null, null, 0, 0);
+
+    private final OutputStream out;
+    private final String name;
+    private final long softLimit;
+    private final long hardLimit;
+    private final Runnable onFailure;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicBoolean failed = new AtomicBoolean(false);
+    private final LongAdder shed = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    /**
+     * Starts the writer thread.
+     *
+     * @param name       used for the writer thread and in log messages
+     * @param onFailure  run once if the backlog passes the hard limit or the writer fails while the
+     *                   queue is open; expected to close the connection
+     */
+    public OutboundQueue(OutputStream out, String name, long softLimit, long hardLimit, Runnable onFailure) {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        this.name = name;
+        this.softLimit = softLimit;
+        this.hardLimit = hardLimit;
+        this.onFailure = onFailure;
+        this.writer = new Thread(this::writeLoop, "writer-" + name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Builds a queue with limits from system properties: quarto.net.outboundSoftLimitBytes
+     * (default 256 KiB) and quarto.net.outboundHardLimitBytes (default 4 MiB).
+     */
+    public static OutboundQueue fromSystemProperties(OutputStream out, String name, Runnable onFailure) {
+        return new OutboundQueue(out, name,
+                Long.getLong("quarto.net.outboundSoftLimitBytes", 256 * 1024),
+                Long.getLong("quarto.net.outboundHardLimitBytes", 4 * 1024 * 1024),
+                onFailure);
+    }
+
+    /**
+     * Queues a message, encoded for the given format when it is written.
+     *
+     * @return false if the message was dropped: the queue is closed, the message was shed, or the
+     * backlog overflowed
+     */
+    public boolean send(OutboundMessage message, WireFormat format) {
+        if (closed) return false;
+        int size = message.size(format);
+        long backlog = queuedBytes.get();
+        if (message.isSheddable() && backlog > softLimit) {
+            shed.increment();
+            SHED.increment();
+            return false;
+        }
+        if (backlog + size > hardLimit) {
+            if (failed.compareAndSet(false, true)) {
+                closed = true;
+                OVERFLOWS.increment();
+                LOG.warn("Outbound backlog of {} over {} bytes, disconnecting", name, hardLimit);
+                onFailure.run();
+            }
+            return false;
+        }
+        queuedBytes.addAndGet(size);
+        queue.add(new Entry(message, format, size, System.nanoTime()));
+        return true;
+    }
+
+    /**
+     * @return true while the backlog is past the soft limit, i.e. the client is not keeping up
+     */
+    public boolean isBehind() {
+        return queuedBytes.get() > softLimit;
+    }
+
+    /**
+     * @return the number of bytes queued and not yet written
+     */
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    /**
+     * @return the number of sheddable messages dropped so far
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    /**
+     * Stops accepting messages and waits up to the given time for the backlog to be written.
+     * The caller then closes the socket, which also releases a writer stuck on a client that stopped reading.
+     */
+    public void close(long waitMillis) {
+        closed = true;
+        queue.add(CLOSE);
+        try {
+            writer.join(waitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        try {
+            boolean closing = false;
+            while (!closing) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                long written = 0;
+                for (Entry entry : batch) {
+                    if (entry == CLOSE) {
+                        closing = true;
+                        break;
+                    }
+                    entry.message.writeTo(out, entry.format);
+                    written += entry.size;
+                }
+                out.flush();
+                queuedBytes.addAndGet(-written);
+                BYTES.add(written);
+                long flushedAt = System.nanoTime();
+                for (Entry entry : batch) {
+                    if (entry != CLOSE) DELAY.record(flushedAt - entry.queuedAt);
+                }
+                batch.clear();
+            }
+        } catch (IOException e) {
+            if (!closed) LOG.warn("Error sending to {}: {}", name, e.getMessage());
+            stop();
+        } catch (RuntimeException e) {
+            // E.g. a message that cannot be encoded: nothing after it can go out in order either
+            LOG.error("Writer for {} failed", name, e);
+            stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ends the writer: drops the backlog and, unless the queue was closed on purpose, runs the
+     * failure callback so the connection is torn down now rather than when the client next sends.
+     */
+    private void stop() {
+        boolean unexpected = !closed;
+        closed = true;
+        queue.clear();
+        queuedBytes.set(0);
+        if (unexpected && failed.compareAndSet(false, true)) {
+            onFailure.run();
+        }
+    }
+
+    private static class Entry {
+        final OutboundMessage message;
+        final WireFormat format;    // Fixed when queued: the handshake reply must go out in the old format
+        final int size;
+        final long queuedAt;
+
+        Entry(OutboundMessage message, WireFormat format, int size, long queuedAt) {
+            this.message = message;
+            this.format = format;
+            this.size = size;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package server.session;
+
+import server.history.MoveList;
+import server.protocol.OutboundMessage;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A running game between two players, plus any number of spectators watching it.
+ * Events are published once and fanned out to every subscriber except the sender.
+ * Spectators are served from a shared executor so that the players' relay path
+ * never waits for the audience.
+ */
+public class GameSession {
+
+    private final long id;
+    private final Participant player1;
+    private final Participant player2;
+    private final Set<Participant> spectators = ConcurrentHashMap.newKeySet();
+    private final Executor fanOutExecutor;
+
+    // Spectator events are drained in order by at most one fan-out task at a time
+    private final ConcurrentLinkedQueue<OutboundMessage> spectatorQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+
+    private final long startedAt = System.currentTimeMillis();
+    private final MoveList moves = new MoveList();
+    private volatile Participant firstMover;
+
+    GameSession(long id, Participant player1, Participant player2, Executor fanOutExecutor) {
+        this.id = id;
+        this.player1 = player1;
+        this.player2 = player2;
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Participant getPlayer1() {
+        return player1;
+    }
+
+    public Participant getPlayer2() {
+        return player2;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * @return the moves played so far, in compact form
+     */
+    public MoveList getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return the player who was given the first turn, or null if not set
+     */
+    public Participant getFirstMover() {
+        return firstMover;
+    }
+
+    public void setFirstMover(Participant firstMover) {
+        this.firstMover = firstMover;
+    }
+
+    /**
+     * @return the other player of this session, or null if the given participant is not a player
+     */
+    public Participant opponentOf(Participant player) {
+        if (player == player1) return player2;
+        if (player == player2) return player1;
+        return null;
+    }
+
+    public boolean isFinished() {
+        return finished.get();
+    }
+
+    public int getSpectatorCount() {
+        return spectators.size();
+    }
+
+    /**
+     * Adds a spectator to a running session.
+     * @return false if the session has already finished
+     */
+    public boolean addSpectator(Participant spectator) {
+        if (finished.get()) return false;
+        spectators.add(spectator);
+        return true;
+    }
+
+    public void removeSpectator(Participant spectator) {
+        spectators.remove(spectator);
+    }
+
+    /**
+     * Publishes an event to the sender's opponent and to all spectators.
+     * The opponent is written to directly; spectators are served asynchronously.
+     *
+     * @param sender  the player that produced the event
+     * @param message the encoded event, shared by all recipients
+     */
+    public void publish(Participant sender, OutboundMessage message) {
+        Participant opponent = opponentOf(sender);
+        if (opponent != null) opponent.send(message);
+        publishToSpectators(message);
+    }
+
+    /**
+     * Queues an event for every spectator of this session.
+     */
+    public void publishToSpectators(OutboundMessage message) {
+        if (spectators.isEmpty()) return;
+        spectatorQueue.add(message);
+        scheduleDrain();
+    }
+
+    /**
+     * Marks the session as finished and tells the spectators it is over.
+     * @return true if this call finished the session, false if it was already finished
+     */
+    boolean finish() {
+        if (!finished.compareAndSet(false, true)) return false;
+        publishToSpectators(OutboundMessage.of("sessionEnded " + id));
+        return true;
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            fanOutExecutor.execute(this::drainSpectatorQueue);
+        }
+    }
+
+    private void drainSpectatorQueue() {
+        do {
+            OutboundMessage message;
+            while ((message = spectatorQueue.poll()) != null) {
+                for (Participant spectator : spectators) {
+                    spectator.send(message);
+                }
+            }
+            draining.set(false);
+            // Re-check in case an event was queued after the last poll but before the flag was cleared
+        } while (!spectatorQueue.isEmpty() && draining.compareAndSet(false, true));
+
+        if (finished.get() && spectatorQueue.isEmpty()) {
+            spectators.clear();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package server.session;
+
+import server.protocol.OutboundMessage;
+
+/**
+ * A connection that can take part in a game session, either as a player or as a spectator.
+ */
+public interface Participant {
+
+    /**
+     * @return the username bound to this connection, or null if not logged in yet
+     */
+    String getUsername();
+
+    /**
+     * Writes an already-encoded message to this participant's connection.
+     */
+    void send(OutboundMessage message);
+
+    /**
+     * @return true while this connection has a backlog of unsent messages, so optional updates should wait
+     */
+    default boolean isBehind() {
+        return false;
+    }
+}
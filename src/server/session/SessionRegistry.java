@@ -0,0 +1,76 @@
+package server.session;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of all running game sessions by ID.
+ * Owns the shared executor used to fan events out to spectators.
+ */
+public class SessionRegistry {
+
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ExecutorService fanOutExecutor;
+
+    public SessionRegistry() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param fanOutThreads number of threads used to deliver events to spectators
+     */
+    public SessionRegistry(int fanOutThreads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fanOutExecutor = Executors.newFixedThreadPool(fanOutThreads, r -> {
+            Thread t = new Thread(r, "session-fanout-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Creates and registers a new session between two players.
+     */
+    public GameSession create(Participant player1, Participant player2) {
+        GameSession session = new GameSession(nextId.getAndIncrement(), player1, player2, fanOutExecutor);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * @return the running session with the given ID, or null if there is none
+     */
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Finishes a session, notifies its spectators and removes it from the registry.
+     * Safe to call more than once.
+     *
+     * @return true if this call ended the session, false if it had already ended
+     */
+    public boolean end(GameSession session) {
+        if (session == null) return false;
+        boolean ended = session.finish();
+        sessions.remove(session.getId(), session);
+        return ended;
+    }
+
+    /**
+     * @return a live, unmodifiable view of the running sessions
+     */
+    public Collection<GameSession> activeSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+}
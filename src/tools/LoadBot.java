@@ -0,0 +1,269 @@
+package tools;
+
+import client.game.ComputerAI;
+import client.game.QuartoGame;
+import client.network.GameSessionListener;
+import client.network.TCPClient;
+import common.protocol.LoginResult;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated player: logs in, asks for a match, plays it to the end and asks for the next one,
+ * until the run stops. Uses the same {@link TCPClient} as the game, so it speaks the same protocol.
+ *
+ * Callbacks arrive on the client's reader thread and moves are made on the generator's scheduler,
+ * so every method that touches the game is synchronized.
+ */
+final class LoadBot implements GameSessionListener {
+
+    private static final String PASSWORD = "loadtest";
+
+    private final String name;
+    private final LoadGenerator generator;
+    private final LoadStats stats;
+    private TCPClient client;
+
+    private QuartoGame game;            // Null between games
+    private boolean matched;            // The opponent has shown up in the current game
+    private LoadBot opponent;           // Known once its greeting arrives; needed to time relayed moves
+    private long requestedAt;
+    private long startedAt;
+    private long lastActivity;          // Last move sent or received, to spot stalled games
+    // When this bot last sent each kind of move, read by the opponent to time the relay
+    private volatile long placeSentAt;
+    private volatile long chooseSentAt;
+
+    LoadBot(String name, LoadGenerator generator) {
+        this.name = name;
+        this.generator = generator;
+        this.stats = generator.getStats();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Connects and logs in, creating the account on the first run, then asks for a game.
+     */
+    void start() {
+        client = new TCPClient(name, generator.getHost(), generator.getPort(), generator.getFormat());
+        if (!client.isConnected()) {
+            stats.error("connect");
+            return;
+        }
+        stats.connected.increment();
+        client.setGameSessionListener(this);
+        client.setChatListener(this::chatReceived);
+        client.loginAsync(name, PASSWORD).whenComplete((result, error) -> {
+            if (error != null || (result != LoginResult.OK && result != LoginResult.CREATED)) {
+                stats.error("login");
+            } else {
+                requestGame();
+            }
+        });
+    }
+
+    /**
+     * @return true while a game is under way, so the run waits for it before disconnecting
+     */
+    synchronized boolean isPlaying() {
+        return game != null && matched;
+    }
+
+    void stop() {
+        if (client == null || !client.isConnected()) return;
+        client.notifyDisconnect();
+        try {
+            client.close();
+        } catch (Exception ignored) {
+            // Closing anyway
+        }
+    }
+
+    private synchronized void requestGame() {
+        game = null;
+        if (!generator.isRunning()) return;
+        game = new QuartoGame();
+        matched = false;
+        opponent = null;
+        requestedAt = System.nanoTime();
+        client.startGameSessionWithServer();
+    }
+
+    @Override
+    public synchronized void startOnlineGameAcourdingToMyTurne(boolean isMyTurn) {
+        // The same "wait" message means both "queued" and "matched, opponent moves first"; the
+        // second player therefore learns of the match from the first player's greeting instead
+        if (!isMyTurn || game == null) return;
+        matchFound();
+        stats.gamesStarted.increment();
+        client.sendMessage("chat hello");
+        schedule(this::chooseFirstPiece);
+    }
+
+    /**
+     * Chat lines arrive as "sender: text"; the greeting tells each bot who its opponent is.
+     */
+    private synchronized void chatReceived(String line) {
+        int separator = line.indexOf(": ");
+        if (separator < 0 || game == null) return;
+        opponent = generator.getBot(line.substring(0, separator));
+        if (!matched) {
+            matchFound();
+            client.sendMessage("chat hello");
+        }
+    }
+
+    private void matchFound() {
+        lastActivity = System.nanoTime();
+        if (matched) return;
+        matched = true;
+        startedAt = lastActivity;
+        stats.matchWait.record(startedAt - requestedAt);
+    }
+
+    /**
+     * Gives up on a game in which nothing has happened for too long, e.g. because a move was lost.
+     */
+    synchronized void checkStalled(long now, long timeoutNanos) {
+        if (game != null && matched && now - lastActivity > timeoutNanos) {
+            abandon("stalled");
+        }
+    }
+
+    @Override
+    public synchronized void opponentPlacedPiece(int row, int col) {
+        if (game == null) return;
+        recordRelay(opponent == null ? 0 : opponent.placeSentAt);
+        matchFound();
+        boolean win;
+        try {
+            win = game.placeCurrentPiece(row, col);
+        } catch (RuntimeException e) {
+            abandon("invalidMove");
+            return;
+        }
+        if (win) {
+            client.notifyILoss();
+            finishGame(false);
+        } else if (game.isBoardFull()) {
+            client.notifyIDraw();
+            finishGame(false);
+        }
+        // Otherwise the opponent now chooses our piece
+    }
+
+    @Override
+    public synchronized void opponentChosePiece(int pieceId) {
+        if (game == null) return;
+        recordRelay(opponent == null ? 0 : opponent.chooseSentAt);
+        matchFound();
+        try {
+            game.setCurrentPiece(pieceId);
+        } catch (RuntimeException e) {
+            abandon("invalidMove");
+            return;
+        }
+        schedule(this::takeTurn);
+    }
+
+    @Override
+    public synchronized void opponentLeft() {
+        if (game == null || !generator.isRunning()) return;    // Expected while the run shuts down
+        abandon("opponentLeft");
+    }
+
+    private void recordRelay(long sentAt) {
+        if (sentAt != 0) stats.relayLatency.recordSince(sentAt);
+    }
+
+    /**
+     * Runs a move after the configured think time, unless the game has ended by then.
+     */
+    private void schedule(Runnable move) {
+        QuartoGame current = game;
+        generator.getScheduler().schedule(() -> {
+            synchronized (this) {
+                if (game == current) move.run();
+            }
+        }, generator.getThinkMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void chooseFirstPiece() {
+        sendChoice(choosePiece());
+    }
+
+    /**
+     * Places the piece we were given, then chooses the opponent's piece, as one turn.
+     */
+    private void takeTurn() {
+        int[] square = generator.isSmartPolicy() ? ComputerAI.findBestPlacement(game) : randomSquare();
+        placeSentAt = System.nanoTime();
+        client.sendMessage("movePlace " + square[0] + " " + square[1]);
+        stats.moves.increment();
+        lastActivity = placeSentAt;
+        boolean win = game.placeCurrentPiece(square[0], square[1]);
+        if (win) {
+            client.notifyIWon();
+            stats.wins.increment();
+            finishGame(true);
+        } else if (game.isBoardFull()) {
+            client.notifyIDraw();
+            stats.draws.increment();
+            finishGame(true);
+        } else {
+            sendChoice(choosePiece());
+        }
+    }
+
+    private void sendChoice(int pieceId) {
+        chooseSentAt = System.nanoTime();
+        client.sendMessage("moveChoose " + pieceId);
+        stats.moves.increment();
+        lastActivity = chooseSentAt;
+        game.setCurrentPiece(pieceId);
+    }
+
+    private int choosePiece() {
+        if (generator.isSmartPolicy()) return ComputerAI.chooseBestPieceForOpponent(game);
+        boolean[] available = game.getAvailablePieces();
+        int count = 0;
+        for (boolean free : available) if (free) count++;
+        int pick = ThreadLocalRandom.current().nextInt(count);
+        for (int id = 0; id < available.length; id++) {
+            if (available[id] && pick-- == 0) return id;
+        }
+        throw new IllegalStateException("No piece left to choose");
+    }
+
+    private int[] randomSquare() {
+        int[][] board = game.getIntBoard();
+        int count = 0;
+        for (int[] row : board) for (int cell : row) if (cell == -1) count++;
+        int pick = ThreadLocalRandom.current().nextInt(count);
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                if (board[row][col] == -1 && pick-- == 0) return new int[]{row, col};
+            }
+        }
+        throw new IllegalStateException("No empty square");
+    }
+
+    /**
+     * @param madeLastMove true for the player whose move ended the game, which counts it once
+     */
+    private void finishGame(boolean madeLastMove) {
+        if (madeLastMove) stats.gameDuration.recordSince(startedAt);
+        game = null;
+        generator.getScheduler().execute(this::requestGame);
+    }
+
+    private void abandon(String reason) {
+        stats.error(reason);
+        game = null;
+        generator.getScheduler().execute(this::requestGame);
+    }
+}
@@ -0,0 +1,145 @@
+package tools;
+
+import common.protocol.WireFormat;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load generator for TCPServer. Opens many bot connections that log in, get matched through
+ * startOnlineGame and play complete games against each other, then reports throughput, matchmaking
+ * wait, move relay latency and errors.
+ *
+ * Configured with system properties:
+ * <ul>
+ *   <li>quarto.load.host / quarto.load.port: the server (localhost:1234)</li>
+ *   <li>quarto.load.clients: concurrent connections, best even so everyone gets an opponent (100)</li>
+ *   <li>quarto.load.durationSec: how long to keep starting new games (60)</li>
+ *   <li>quarto.load.rampSec: spread the connections over this many seconds (5)</li>
+ *   <li>quarto.load.thinkMs: pause before each move (0)</li>
+ *   <li>quarto.load.policy: {@code random} moves, or {@code ai} to play with ComputerAI, which needs
+ *       seconds of CPU per move early in a game (random)</li>
+ *   <li>quarto.load.prefix: prefix of the bot usernames, which are created on first use (bot)</li>
+ *   <li>quarto.load.stallSec: abandon a game with no move for this long and count an error (10)</li>
+ *   <li>quarto.protocol: wire format, as for the game client (binary)</li>
+ * </ul>
+ * Example: {@code java -Dquarto.load.clients=500 -Dquarto.load.durationSec=120 tools.LoadGenerator}
+ */
+public class LoadGenerator {
+
+    private static final long REPORT_INTERVAL_SEC = 5;
+    private static final long DRAIN_MS = 10_000;     // How long to let running games finish at the end
+
+    private final String host = System.getProperty("quarto.load.host", "localhost");
+    private final int port = Integer.getInteger("quarto.load.port", 1234);
+    private final int clients = Integer.getInteger("quarto.load.clients", 100);
+    private final long durationSec = Long.getLong("quarto.load.durationSec", 60);
+    private final long rampSec = Long.getLong("quarto.load.rampSec", 5);
+    private final long thinkMillis = Long.getLong("quarto.load.thinkMs", 0);
+    private final boolean smartPolicy = "ai".equalsIgnoreCase(System.getProperty("quarto.load.policy", "random"));
+    private final String prefix = System.getProperty("quarto.load.prefix", "bot");
+    private final long stallNanos = TimeUnit.SECONDS.toNanos(Long.getLong("quarto.load.stallSec", 10));
+    private final WireFormat format = WireFormat.fromName(System.getProperty("quarto.protocol", "binary"));
+
+    private final LoadStats stats = new LoadStats();
+    private final Map<String, LoadBot> botsByName = new ConcurrentHashMap<>();
+    private final List<LoadBot> bots = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler =
+            Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "load-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws InterruptedException {
+        PrintStream report = System.out;
+        // TCPClient prints a line for every game event; keep the console for the report
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        new LoadGenerator().run(report);
+    }
+
+    private void run(PrintStream out) throws InterruptedException {
+        out.printf("Load test: %d clients against %s:%d for %d s, %s moves, think %d ms, %s protocol%n",
+                clients, host, port, durationSec, smartPolicy ? "ComputerAI" : "random", thinkMillis,
+                format.name().toLowerCase());
+
+        long rampNanos = TimeUnit.SECONDS.toNanos(rampSec);
+        for (int i = 0; i < clients; i++) {
+            LoadBot bot = new LoadBot(prefix + i, this);
+            botsByName.put(bot.getName(), bot);
+            bots.add(bot);
+            scheduler.schedule(bot::start, rampNanos * i / clients, TimeUnit.NANOSECONDS);
+        }
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSec);
+        long lastReport = start;
+        long lastGames = 0;
+        long lastMoves = 0;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(REPORT_INTERVAL_SEC),
+                    Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+            long now = System.nanoTime();
+            for (LoadBot bot : bots) bot.checkStalled(now, stallNanos);
+            stats.printProgress(out, now - start, lastGames, lastMoves, now - lastReport);
+            lastReport = now;
+            lastGames = stats.getGamesCompleted();
+            lastMoves = stats.moves.sum();
+        }
+
+        // Start no new games, let the running ones finish, then disconnect everyone
+        running = false;
+        long drainEnd = System.currentTimeMillis() + DRAIN_MS;
+        while (System.currentTimeMillis() < drainEnd && bots.stream().anyMatch(LoadBot::isPlaying)) {
+            Thread.sleep(50);
+        }
+        long elapsed = System.nanoTime() - start;
+        for (LoadBot bot : bots) bot.stop();
+        scheduler.shutdownNow();
+        stats.printReport(out, elapsed);
+    }
+
+    LoadStats getStats() {
+        return stats;
+    }
+
+    LoadBot getBot(String name) {
+        return botsByName.get(name);
+    }
+
+    ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    String getHost() {
+        return host;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    WireFormat getFormat() {
+        return format;
+    }
+
+    long getThinkMillis() {
+        return thinkMillis;
+    }
+
+    boolean isSmartPolicy() {
+        return smartPolicy;
+    }
+}
@@ -0,0 +1,88 @@
+package tools;
+
+import server.metrics.Histogram;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Results of a load run, updated by every bot at once.
+ */
+final class LoadStats {
+
+    final LongAdder connected = new LongAdder();
+    final LongAdder gamesStarted = new LongAdder();     // Counted by the first mover of each game
+    final LongAdder wins = new LongAdder();             // Counted by the player who made the last move
+    final LongAdder draws = new LongAdder();
+    final LongAdder moves = new LongAdder();            // movePlace and moveChoose messages sent
+    final Histogram matchWait = new Histogram();        // startOnlineGame until the opponent is known
+    final Histogram relayLatency = new Histogram();     // A move sent by one bot until its opponent receives it
+    final Histogram gameDuration = new Histogram();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    void error(String kind) {
+        errors.computeIfAbsent(kind, k -> new LongAdder()).increment();
+    }
+
+    long getGamesCompleted() {
+        return wins.sum() + draws.sum();
+    }
+
+    long getErrorCount() {
+        long total = 0;
+        for (LongAdder count : errors.values()) total += count.sum();
+        return total;
+    }
+
+    /**
+     * Prints one line of running totals.
+     */
+    void printProgress(PrintStream out, long elapsedNanos, long previousGames, long previousMoves, long intervalNanos) {
+        double interval = intervalNanos / 1e9;
+        out.printf("%5ds  connected %d  games %d (%.1f/s)  moves %d (%.1f/s)  relay p99 %.2f ms  errors %d%n",
+                TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), connected.sum(),
+                getGamesCompleted(), (getGamesCompleted() - previousGames) / interval,
+                moves.sum(), (moves.sum() - previousMoves) / interval,
+                relayLatency.get99thPercentileMillis(), getErrorCount());
+    }
+
+    /**
+     * Prints the final report.
+     */
+    void printReport(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        out.println();
+        out.printf("Elapsed          %.1f s%n", seconds);
+        out.printf("Connected        %d%n", connected.sum());
+        out.printf("Games            %d started, %d completed (%d won, %d drawn), %.1f/s%n",
+                gamesStarted.sum(), getGamesCompleted(), wins.sum(), draws.sum(), getGamesCompleted() / seconds);
+        out.printf("Moves            %d, %.1f/s%n", moves.sum(), moves.sum() / seconds);
+        printLatency(out, "Matchmaking wait", matchWait);
+        printLatency(out, "Move relay", relayLatency);
+        printLatency(out, "Game duration", gameDuration);
+        if (errors.isEmpty()) {
+            out.println("Errors           none");
+        } else {
+            StringBuilder line = new StringBuilder("Errors          ");
+            for (Map.Entry<String, LongAdder> entry : new TreeMap<>(errors).entrySet()) {
+                line.append(' ').append(entry.getKey()).append('=').append(entry.getValue().sum());
+            }
+            out.println(line);
+        }
+    }
+
+    private static void printLatency(PrintStream out, String label, Histogram histogram) {
+        if (histogram.getCount() == 0) {
+            out.printf("%-16s no samples%n", label);
+            return;
+        }
+        out.printf("%-16s p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  max %.3f ms  (%d samples)%n", label,
+                histogram.get50thPercentileMillis(), histogram.get90thPercentileMillis(),
+                histogram.get99thPercentileMillis(), histogram.get999thPercentileMillis(),
+                histogram.getMaxMillis(), histogram.getCount());
+    }
+}
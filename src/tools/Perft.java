@@ -0,0 +1,282 @@
+package tools;
+
+import client.game.ComputerAI;
+import client.game.Piece;
+import client.game.QuartoGame;
+import client.game.SearchStats;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Perft for the game core: from a position, plays out every sequence of actions (choosing a piece or
+ * placing it) to a fixed number of plies with make/undo on a single QuartoGame, and counts the nodes,
+ * wins and draws at each ply. The counts only depend on the rules, so they pin down move generation,
+ * win detection and undo, and any change to those must reproduce them exactly. Nodes per second
+ * measure the raw speed of the game core.
+ *
+ * Optionally also runs one ComputerAI search from the position and prints its counters: nodes and
+ * cutoffs per ply, leaf evaluations, and how often the immediate-win scan and the losing-piece check
+ * saved a subtree.
+ *
+ * Configured with system properties:
+ * <ul>
+ *   <li>quarto.perft.position: the moves leading to the start position, in the notation of the game
+ *       history, e.g. {@code "C5 P12 C3"} (C = piece given, P = square {@code row * 4 + col}) (empty board)</li>
+ *   <li>quarto.perft.depth: plies to play out (5)</li>
+ *   <li>quarto.perft.verify: check every win against an independent line check and every undo
+ *       against a copy of the game; several times slower (false)</li>
+ *   <li>quarto.perft.search: also run the AI search (false); from an early position this takes minutes</li>
+ * </ul>
+ * The empty board and the benchmark positions have reference counts, which the output is checked
+ * against; the exit status is 1 if a count or a verification fails.
+ * Example: {@code java -Dquarto.perft.position="C0 P0 C15 P5 C5 P11 C10 P2" -Dquarto.perft.depth=6 tools.Perft}
+ */
+public class Perft {
+
+    private static final String OPENING = "C0 P0 C15 P5 C5 P11 C10 P2";
+    private static final String ENDGAME = OPENING + " C3 P13 C12 P7 C6 P8 C9 P14";
+
+    // Node counts per ply for known positions: the empty board, where no line can be completed
+    // before the eighth ply and each ply multiplies by the pieces left or the empty squares, and
+    // the opening and endgame positions of the benchmarks
+    private static final Map<String, long[]> REFERENCE_COUNTS = Map.of(
+            "", new long[]{16, 256, 3_840, 57_600, 806_400, 11_289_600, 146_764_800},
+            OPENING, new long[]{12, 144, 1_584, 17_424, 173_080, 1_730_800},
+            ENDGAME, new long[]{8, 64, 448, 3_136, 16_704, 100_224, 384_690, 1_923_450, 4_937_280, 19_749_120});
+
+    private final QuartoGame game;
+    private final int depth;
+    private final boolean verify;
+    private final long[] nodes;
+    private final long[] wins;
+    private final long[] draws;
+    private long mismatches;
+
+    private Perft(QuartoGame game, int depth, boolean verify) {
+        this.game = game;
+        this.depth = depth;
+        this.verify = verify;
+        this.nodes = new long[depth];
+        this.wins = new long[depth];
+        this.draws = new long[depth];
+    }
+
+    public static void main(String[] args) {
+        String position = System.getProperty("quarto.perft.position", "").trim();
+        int depth = Integer.getInteger("quarto.perft.depth", 5);
+        boolean verify = Boolean.getBoolean("quarto.perft.verify");
+        boolean search = Boolean.getBoolean("quarto.perft.search");
+
+        QuartoGame game;
+        try {
+            game = parsePosition(position);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Invalid position: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (depth < 1 || depth > SearchStats.MAX_PLY) {
+            System.err.println("quarto.perft.depth must be between 1 and " + SearchStats.MAX_PLY);
+            System.exit(2);
+            return;
+        }
+
+        System.out.printf("Perft from \"%s\" to depth %d%s%n", position, depth, verify ? ", verifying" : "");
+        Perft perft = new Perft(game, depth, verify);
+        long start = System.nanoTime();
+        perft.run(0);
+        long elapsed = System.nanoTime() - start;
+        boolean ok = perft.printCounts(System.out, REFERENCE_COUNTS.get(String.join(" ", position.split("\\s+"))), elapsed);
+
+        if (search) {
+            runSearch(game, System.out);
+        }
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * Plays out every action from the current position, counting at index {@code ply}.
+     */
+    private void run(int ply) {
+        if (game.getCurrentPiece() == -1) {
+            boolean[] available = game.getAvailablePieces();
+            for (int piece = 0; piece < 16; piece++) {
+                if (!available[piece]) continue;
+                QuartoGame before = verify ? game.copy() : null;
+                game.setCurrentPiece(piece);
+                nodes[ply]++;
+                if (ply + 1 < depth) run(ply + 1);
+                game.clearCurrentPiece();
+                if (verify) checkUndo(before);
+            }
+            return;
+        }
+
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                if (game.getBoard().getPiece(row, col) != null) continue;
+                QuartoGame before = verify ? game.copy() : null;
+                boolean won = game.placeCurrentPiece(row, col);
+                nodes[ply]++;
+                if (verify && won != completesLine(row, col)) {
+                    mismatch("win detection disagrees at square " + (row * 4 + col));
+                }
+                if (won) {
+                    wins[ply]++;
+                } else if (game.isBoardFull()) {
+                    draws[ply]++;
+                } else if (ply + 1 < depth) {
+                    run(ply + 1);
+                }
+                game.undoPlacement(row, col);
+                if (verify) checkUndo(before);
+            }
+        }
+    }
+
+    /**
+     * Checks the lines through the square just filled, without WinChecker: the four pieces share an
+     * attribute if a bit is set in all of them or clear in all of them.
+     */
+    private boolean completesLine(int row, int col) {
+        return completes(row, 0, 0, 1)
+                || completes(0, col, 1, 0)
+                || (row == col && completes(0, 0, 1, 1))
+                || (row + col == 3 && completes(0, 3, 1, -1));
+    }
+
+    private boolean completes(int row, int col, int rowStep, int colStep) {
+        int all = 0xF;
+        int none = 0xF;
+        for (int i = 0; i < 4; i++) {
+            Piece piece = game.getBoard().getPiece(row + i * rowStep, col + i * colStep);
+            if (piece == null) return false;
+            all &= piece.getId();
+            none &= ~piece.getId();
+        }
+        return (all | none) != 0;
+    }
+
+    private void checkUndo(QuartoGame before) {
+        if (!Arrays.deepEquals(before.getIntBoard(), game.getIntBoard())
+                || !Arrays.equals(before.getAvailablePieces(), game.getAvailablePieces())
+                || before.getCurrentPiece() != game.getCurrentPiece()
+                || before.getCurrentPlayer() != game.getCurrentPlayer()) {
+            mismatch("undo did not restore the position");
+        }
+    }
+
+    private void mismatch(String message) {
+        if (mismatches++ < 10) System.err.println("Mismatch: " + message);
+    }
+
+    /**
+     * Prints one line per ply, compared with the reference counts if the position has them.
+     *
+     * @return false if a count or a verification failed
+     */
+    private boolean printCounts(PrintStream out, long[] reference, long elapsedNanos) {
+        boolean ok = mismatches == 0;
+        long total = 0;
+        out.printf("%4s %16s %12s %12s%s%n", "Ply", "Nodes", "Wins", "Draws", (reference != null) ? "   Reference" : "");
+        for (int ply = 0; ply < depth; ply++) {
+            total += nodes[ply];
+            String check = "";
+            if (reference != null && ply < reference.length) {
+                boolean match = nodes[ply] == reference[ply];
+                ok &= match;
+                check = match ? "   ok" : "   MISMATCH, expected " + reference[ply];
+            }
+            out.printf("%4d %,16d %,12d %,12d%s%n", ply + 1, nodes[ply], wins[ply], draws[ply], check);
+        }
+        double seconds = elapsedNanos / 1e9;
+        out.printf("Total %,d nodes in %.2f s, %,.0f nodes/s%n", total, seconds, total / seconds);
+        if (verify) {
+            out.println(mismatches == 0 ? "Verification passed" : "Verification failed: " + mismatches + " mismatches");
+        }
+        return ok;
+    }
+
+    /**
+     * Runs the search the AI would make in this position and prints its counters.
+     */
+    private static void runSearch(QuartoGame game, PrintStream out) {
+        SearchStats stats = new SearchStats();
+        boolean placing = game.getCurrentPiece() != -1;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));   // The AI may print warnings
+        long start = System.nanoTime();
+        String move;
+        try {
+            if (placing) {
+                int[] square = ComputerAI.findBestPlacement(game.copy(), stats);
+                move = "P" + (square[0] * 4 + square[1]);
+            } else {
+                move = "C" + ComputerAI.chooseBestPieceForOpponent(game.copy(), stats);
+            }
+        } finally {
+            System.setOut(console);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        out.println();
+        out.printf("Search (%s): %s in %.2f s%n", placing ? "placement" : "piece choice", move, seconds);
+        out.printf("Nodes            %,d, %,.0f/s%n", stats.getNodes(), stats.getNodes() / seconds);
+        out.printf("Evaluations      %,d%n", stats.getEvaluations());
+        out.printf("%4s %14s %12s %10s%n", "Ply", "Nodes", "Cutoffs", "Cut rate");
+        for (int ply = 0; ply <= stats.getMaxPly(); ply++) {
+            long plyNodes = stats.getNodesAtPly(ply);
+            out.printf("%4d %,14d %,12d %9.1f%%%n", ply, plyNodes, stats.getCutoffsAtPly(ply),
+                    percent(stats.getCutoffsAtPly(ply), plyNodes));
+        }
+        out.printf("Win scan         %,d scans, %,d placements tried, %,d wins found (%.1f%% of scans)%n",
+                stats.getWinScans(), stats.getWinScanPlacements(), stats.getWinScanHits(),
+                percent(stats.getWinScanHits(), stats.getWinScans()));
+        out.printf("Losing pieces    %,d of %,d checked (%.1f%%), %,d skipped without scoring%n",
+                stats.getLosingPieces(), stats.getPiecesChecked(),
+                percent(stats.getLosingPieces(), stats.getPiecesChecked()), stats.getLosingPiecesSkipped());
+    }
+
+    private static double percent(long part, long whole) {
+        return (whole == 0) ? 0 : 100.0 * part / whole;
+    }
+
+    /**
+     * Plays the moves of a position in the game history notation on a new game.
+     *
+     * @throws IllegalArgumentException if a move is malformed or not legal, or the game is already won
+     */
+    static QuartoGame parsePosition(String moves) {
+        QuartoGame game = new QuartoGame();
+        if (moves.isEmpty()) return game;
+        for (String move : moves.split("\\s+")) {
+            int value;
+            try {
+                value = Integer.parseInt(move.substring(1));
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Malformed move: " + move);
+            }
+            if (value < 0 || value > 15) throw new IllegalArgumentException("Out of range: " + move);
+            char kind = Character.toUpperCase(move.charAt(0));
+            if (kind == 'C') {
+                if (game.getCurrentPiece() != -1) throw new IllegalArgumentException("A piece is already in hand: " + move);
+                game.setCurrentPiece(value);
+            } else if (kind == 'P') {
+                if (game.getCurrentPiece() == -1) throw new IllegalArgumentException("No piece in hand: " + move);
+                if (game.getBoard().getPiece(value / 4, value % 4) != null) {
+                    throw new IllegalArgumentException("Square already taken: " + move);
+                }
+                if (game.placeCurrentPiece(value / 4, value % 4)) {
+                    throw new IllegalArgumentException("The game is already won at " + move);
+                }
+            } else {
+                throw new IllegalArgumentException("Malformed move: " + move);
+            }
+        }
+        if (game.isBoardFull()) throw new IllegalArgumentException("The board is full");
+        return game;
+    }
+}
@@ -0,0 +1,280 @@
+package tools;
+
+import client.game.QuartoGame;
+import client.game.SearchStats;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless self-play between two engines (e.g. ComputerAI at two depths), on the game core only, with
+ * games running in parallel on all cores. Reports the first engine's wins, draws and losses with 95%
+ * confidence intervals and the Elo difference they imply, and for each engine the think time, nodes
+ * and leaf evaluations per move, so a faster search can be weighed against the strength it buys.
+ *
+ * ComputerAI always plays the same move in the same position, so every game starts from a few random
+ * moves instead, and each opening is played twice with the engines swapped to cancel out its bias.
+ *
+ * Configured with system properties:
+ * <ul>
+ *   <li>quarto.selfplay.engines: the two engines, {@code ai}, {@code ai:<depth>} or {@code random} (ai:3,ai:2)</li>
+ *   <li>quarto.selfplay.games: games to play, rounded up to an even number (200)</li>
+ *   <li>quarto.selfplay.threads: games played at once (one per core)</li>
+ *   <li>quarto.selfplay.openingPlies: random actions before the engines take over, a choice or a
+ *       placement each; fewer make depth 3 searches take seconds per move (6)</li>
+ *   <li>quarto.selfplay.seed: seed for the openings, to replay a run (1)</li>
+ * </ul>
+ * Example: {@code java -Dquarto.selfplay.engines=ai:2,random -Dquarto.selfplay.games=2000 tools.SelfPlay}
+ */
+public class SelfPlay {
+
+    private static final double Z_95 = 1.96;
+    private static final long PROGRESS_INTERVAL_SEC = 10;
+    private static final int MAX_ERRORS_SHOWN = 10;
+
+    private final SelfPlayEngine[] engines = new SelfPlayEngine[2];
+    private final int games = (Integer.getInteger("quarto.selfplay.games", 200) + 1) / 2 * 2;
+    private final int threads = Integer.getInteger("quarto.selfplay.threads", Runtime.getRuntime().availableProcessors());
+    private final int openingPlies = Integer.getInteger("quarto.selfplay.openingPlies", 6);
+    private final long seed = Long.getLong("quarto.selfplay.seed", 1);
+
+    // Totals, only touched by the thread that collects the games
+    private final int[] wins = new int[2];
+    private int draws;
+    private final long[] moves = new long[2];
+    private final long[] thinkNanos = new long[2];
+    private final SearchStats[] stats = {new SearchStats(), new SearchStats()};
+    private final List<String> errors = new ArrayList<>();
+
+    private SelfPlay(SelfPlayEngine first, SelfPlayEngine second) {
+        engines[0] = first;
+        engines[1] = second;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String[] names = System.getProperty("quarto.selfplay.engines", "ai:3,ai:2").split(",");
+        SelfPlay selfPlay;
+        try {
+            if (names.length != 2) throw new IllegalArgumentException("quarto.selfplay.engines needs two engines");
+            selfPlay = new SelfPlay(SelfPlayEngine.parse(names[0]), SelfPlayEngine.parse(names[1]));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (selfPlay.games < 2 || selfPlay.threads < 1 || selfPlay.openingPlies < 0 || selfPlay.openingPlies > 16) {
+            System.err.println("Invalid settings: games must be at least 2, threads at least 1, openingPlies 0-16");
+            System.exit(2);
+            return;
+        }
+        selfPlay.run(System.out);
+        if (!selfPlay.errors.isEmpty()) System.exit(1);
+    }
+
+    private void run(PrintStream out) throws InterruptedException {
+        out.printf("Self-play: %s vs %s, %d games (%d openings of %d random plies, each played both ways), %d threads%n",
+                engines[0].name(), engines[1].name(), games, games / 2, openingPlies, threads);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "selfplay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Game> completed = new ExecutorCompletionService<>(pool);
+        for (int i = 0; i < games; i++) {
+            long openingSeed = seed * 1_000_003 + i / 2;
+            boolean firstStarts = (i % 2 == 0);
+            completed.submit(() -> play(openingSeed, firstStarts));
+        }
+
+        long start = System.nanoTime();
+        long nextProgress = start + TimeUnit.SECONDS.toNanos(PROGRESS_INTERVAL_SEC);
+        int done = 0;
+        while (done < games) {
+            Future<Game> future = completed.poll(Math.max(0, nextProgress - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (future != null) {
+                collect(future);
+                done++;
+            }
+            if (System.nanoTime() >= nextProgress) {
+                out.printf("%5ds  games %d/%d  %s W %d D %d L %d%n",
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), done, games,
+                        engines[0].name(), wins[0], draws, wins[1]);
+                nextProgress += TimeUnit.SECONDS.toNanos(PROGRESS_INTERVAL_SEC);
+            }
+        }
+        pool.shutdown();
+        printReport(out, System.nanoTime() - start);
+    }
+
+    private void collect(Future<Game> future) throws InterruptedException {
+        Game game;
+        try {
+            game = future.get();
+        } catch (ExecutionException e) {
+            errors.add("Game failed: " + e.getCause());
+            return;
+        }
+        if (game.error != null) errors.add(game.error);
+        if (game.winner < 0) {
+            draws++;
+        } else {
+            wins[game.winner]++;
+        }
+        for (int side = 0; side < 2; side++) {
+            moves[side] += game.moves[side];
+            thinkNanos[side] += game.thinkNanos[side];
+            stats[side].add(game.stats[side]);
+        }
+    }
+
+    /**
+     * Plays one game from a random opening.
+     *
+     * @param firstStarts whether the first engine makes the first choice of the opening
+     */
+    private Game play(long openingSeed, boolean firstStarts) {
+        Random random = new Random(openingSeed);
+        QuartoGame game = opening(random);
+        Game result = new Game();
+
+        // Play goes choose, place + choose, place + choose...: ply p is made by the player ((p + 1) / 2) % 2
+        for (int ply = openingPlies; ; ply++) {
+            int player = ((ply + 1) / 2) % 2;
+            int side = firstStarts ? player : 1 - player;
+            SelfPlayEngine engine = engines[side];
+            long start = System.nanoTime();
+
+            if (game.getCurrentPiece() == -1) {
+                int piece = engine.choose(game.copy(), random, result.stats[side]);
+                result.record(side, start);
+                if (piece < 0 || piece > 15 || !game.getAvailablePieces()[piece]) {
+                    return result.forfeit(side, engine.name() + " chose unavailable piece " + piece);
+                }
+                game.setCurrentPiece(piece);
+            } else {
+                int[] square = engine.place(game.copy(), random, result.stats[side]);
+                result.record(side, start);
+                if (square == null || square[0] < 0 || square[0] > 3 || square[1] < 0 || square[1] > 3
+                        || game.getBoard().getPiece(square[0], square[1]) != null) {
+                    return result.forfeit(side, engine.name() + " placed on an invalid square");
+                }
+                if (game.placeCurrentPiece(square[0], square[1])) {
+                    result.winner = side;
+                    return result;
+                }
+                if (game.isBoardFull()) return result;   // Draw
+            }
+        }
+    }
+
+    /**
+     * @return a position after {@link #openingPlies} random actions, none of which won the game
+     */
+    private QuartoGame opening(Random random) {
+        while (true) {
+            QuartoGame game = new QuartoGame();
+            boolean won = false;
+            for (int ply = 0; ply < openingPlies && !won; ply++) {
+                if (game.getCurrentPiece() == -1) {
+                    game.setCurrentPiece(SelfPlayEngine.randomPiece(game, random));
+                } else {
+                    int[] square = SelfPlayEngine.randomSquare(game, random);
+                    won = game.placeCurrentPiece(square[0], square[1]);
+                }
+            }
+            if (!won) return game;
+        }
+    }
+
+    private void printReport(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        int played = wins[0] + wins[1] + draws;
+        out.println();
+        out.printf("Games            %d in %.1f s (%.2f/s)%n", played, seconds, played / seconds);
+        if (played == 0) return;
+
+        String first = engines[0].name();
+        out.printf("%-16s W %d  D %d  L %d%n", first, wins[0], draws, wins[1]);
+        printRate(out, "  wins", wins[0], played);
+        printRate(out, "  draws", draws, played);
+        printRate(out, "  losses", wins[1], played);
+
+        double score = (wins[0] + 0.5 * draws) / played;
+        double variance = (wins[0] * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2)
+                + wins[1] * Math.pow(score, 2)) / played;
+        double margin = Z_95 * Math.sqrt(variance / played);
+        out.printf("Score            %.1f%% +/- %.1f%%, Elo %s [%s, %s] for %s%n",
+                100 * score, 100 * margin, elo(score), elo(score - margin), elo(score + margin), first);
+
+        out.printf("%-16s %10s %14s %14s %14s %14s%n", "Engine", "Moves", "Think/move", "Nodes/move", "Evals/move", "Nodes/s");
+        for (int side = 0; side < 2; side++) {
+            long count = Math.max(1, moves[side]);
+            double thinkSeconds = thinkNanos[side] / 1e9;
+            out.printf("%-16s %,10d %11.3f ms %,14.0f %,14.0f %,14.0f%n", engines[side].name(), moves[side],
+                    thinkNanos[side] / 1e6 / count, (double) stats[side].getNodes() / count,
+                    (double) stats[side].getEvaluations() / count,
+                    (thinkSeconds > 0) ? stats[side].getNodes() / thinkSeconds : 0);
+        }
+
+        if (errors.isEmpty()) {
+            out.println("Errors           none");
+        } else {
+            out.printf("Errors           %d%n", errors.size());
+            errors.stream().limit(MAX_ERRORS_SHOWN).forEach(error -> out.println("  " + error));
+        }
+    }
+
+    /**
+     * Prints a proportion with its 95% Wilson score interval.
+     */
+    private static void printRate(PrintStream out, String label, int count, int total) {
+        double p = (double) count / total;
+        double z2 = Z_95 * Z_95;
+        double center = (p + z2 / (2 * total)) / (1 + z2 / total);
+        double half = Z_95 * Math.sqrt(p * (1 - p) / total + z2 / (4.0 * total * total)) / (1 + z2 / total);
+        out.printf("%-16s %.1f%% [%.1f%%, %.1f%%]%n", label, 100 * p, 100 * Math.max(0, center - half), 100 * Math.min(1, center + half));
+    }
+
+    /**
+     * @return the Elo difference for an expected score, unbounded at 0% and 100%
+     */
+    private static String elo(double score) {
+        if (score <= 0) return "-inf";
+        if (score >= 1) return "+inf";
+        return String.format("%+.0f", -400 * Math.log10(1 / score - 1));
+    }
+
+    /**
+     * The outcome of one game and what each engine spent on it.
+     */
+    private static final class Game {
+        int winner = -1;   // The side that won, -1 for a draw
+        String error;
+        final long[] moves = new long[2];
+        final long[] thinkNanos = new long[2];
+        final SearchStats[] stats = {new SearchStats(), new SearchStats()};
+
+        void record(int side, long startNanos) {
+            moves[side]++;
+            thinkNanos[side] += System.nanoTime() - startNanos;
+        }
+
+        Game forfeit(int side, String message) {
+            winner = 1 - side;
+            error = message;
+            return this;
+        }
+    }
+}
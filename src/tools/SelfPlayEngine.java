@@ -0,0 +1,133 @@
+package tools;
+
+import client.game.ComputerAI;
+import client.game.QuartoGame;
+import client.game.SearchStats;
+
+import java.util.Random;
+
+/**
+ * A player for {@link SelfPlay}. Implementations are shared by all game threads, so they keep no state;
+ * each decision gets its own copy of the game.
+ */
+interface SelfPlayEngine {
+
+    /**
+     * @return the name the engine was configured with, e.g. {@code ai:3}
+     */
+    String name();
+
+    /**
+     * @return {row, col} of the square to place the piece in hand on
+     */
+    int[] place(QuartoGame game, Random random, SearchStats stats);
+
+    /**
+     * @return the piece to give the opponent
+     */
+    int choose(QuartoGame game, Random random, SearchStats stats);
+
+    /**
+     * Parses an engine name: {@code ai} (ComputerAI at its default depth), {@code ai:<depth>}, or
+     * {@code random} for uniformly random moves.
+     *
+     * @throws IllegalArgumentException if the name is not one of these
+     */
+    static SelfPlayEngine parse(String name) {
+        String[] parts = name.trim().split(":");
+        switch (parts[0]) {
+            case "ai": {
+                int depth = ComputerAI.SEARCH_DEPTH;
+                if (parts.length > 1) {
+                    try {
+                        depth = Integer.parseInt(parts[1]);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid depth in " + name);
+                    }
+                }
+                if (depth < 1) throw new IllegalArgumentException("Depth must be at least 1 in " + name);
+                return new Search(name.trim(), depth);
+            }
+            case "random":
+                return new RandomMoves();
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+
+    /**
+     * ComputerAI at a fixed depth.
+     */
+    final class Search implements SelfPlayEngine {
+        private final String name;
+        private final int depth;
+
+        Search(String name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public int[] place(QuartoGame game, Random random, SearchStats stats) {
+            return ComputerAI.findBestPlacement(game, depth, stats);
+        }
+
+        @Override
+        public int choose(QuartoGame game, Random random, SearchStats stats) {
+            return ComputerAI.chooseBestPieceForOpponent(game, depth, stats);
+        }
+    }
+
+    /**
+     * Any empty square and any piece left, with equal chance; the floor every engine should beat.
+     */
+    final class RandomMoves implements SelfPlayEngine {
+
+        @Override
+        public String name() {
+            return "random";
+        }
+
+        @Override
+        public int[] place(QuartoGame game, Random random, SearchStats stats) {
+            return randomSquare(game, random);
+        }
+
+        @Override
+        public int choose(QuartoGame game, Random random, SearchStats stats) {
+            return randomPiece(game, random);
+        }
+    }
+
+    /**
+     * @return a uniformly random empty square, or null if the board is full
+     */
+    static int[] randomSquare(QuartoGame game, Random random) {
+        int[] empty = new int[16];
+        int count = 0;
+        for (int square = 0; square < 16; square++) {
+            if (game.getBoard().getPiece(square / 4, square % 4) == null) empty[count++] = square;
+        }
+        if (count == 0) return null;
+        int square = empty[random.nextInt(count)];
+        return new int[]{square / 4, square % 4};
+    }
+
+    /**
+     * @return a uniformly random piece that has not been used, or -1 if none is left
+     */
+    static int randomPiece(QuartoGame game, Random random) {
+        boolean[] available = game.getAvailablePieces();
+        int[] left = new int[16];
+        int count = 0;
+        for (int piece = 0; piece < 16; piece++) {
+            if (available[piece]) left[count++] = piece;
+        }
+        return (count == 0) ? -1 : left[random.nextInt(count)];
+    }
+}
@@ -0,0 +1,115 @@
+package server.db;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Appends bad results followed by a good one, then replays the journal into an empty store:
+ * the bad appends fail on their own, the sync thread keeps going, and only the good result is
+ * in the file. Then opens a new, empty journal against a store whose checkpoint is already past
+ * its first sequence numbers (e.g. the file was deleted): new results must still reach the store.
+ * Run with {@code java server.db.ResultJournalTest}; exits with status 1 on failure.
+ */
+public class ResultJournalTest {
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("quarto.log.file", "");   // Console only; set before the first logger is created
+        Path dir = Files.createTempDirectory("quarto-journal-test");
+        Path journalPath = dir.resolve("results.journal");
+        try {
+            EmbeddedPlayerRepository firstStore = EmbeddedPlayerRepository.open(dir.resolve("first.log"));
+            firstStore.registerUser("alice", "secret");
+            DBHelper.configure(firstStore);
+
+            ResultJournal journal = ResultJournal.open(journalPath);
+            CompletableFuture<Void> noName = journal.append(null, GameResult.WIN);
+            CompletableFuture<Void> longName = journal.append("x".repeat(PlayerRepository.MAX_USERNAME_LENGTH + 1), GameResult.WIN);
+            CompletableFuture<Void> noResult = journal.append("alice", null);   // Only fails when encoded
+            CompletableFuture<Void> good = journal.append("alice", GameResult.WIN);
+
+            check(failsWithin(noName), "an append without a username fails");
+            check(failsWithin(longName), "an append with a too long username fails");
+            check(failsWithin(noResult), "an append that cannot be encoded fails");
+            good.get(5, TimeUnit.SECONDS);   // Times out if the sync thread died
+            journal.close();
+            firstStore.close();
+
+            // Replay into a store that has none of the results yet
+            EmbeddedPlayerRepository secondStore = EmbeddedPlayerRepository.open(dir.resolve("second.log"));
+            secondStore.registerUser("alice", "secret");
+            DBHelper.configure(secondStore);
+            ResultJournal replayed = ResultJournal.open(journalPath);
+            int games = waitForGames(secondStore, "alice", 1);
+            check(games == 1, "the good result is replayed exactly once (got " + games + " games)");
+            replayed.close();
+            secondStore.close();
+
+            // An empty journal against a store that has applied up to sequence number 41
+            EmbeddedPlayerRepository thirdStore = EmbeddedPlayerRepository.open(dir.resolve("third.log"));
+            thirdStore.registerUser("alice", "secret");
+            thirdStore.applyResults(List.of(new RecordedResult(41, "alice", GameResult.WIN)), 41);
+            DBHelper.configure(thirdStore);
+            ResultJournal fresh = ResultJournal.open(dir.resolve("fresh.journal"));
+            fresh.append("alice", GameResult.WIN).get(5, TimeUnit.SECONDS);
+            games = waitForGames(thirdStore, "alice", 2);
+            check(games == 2, "a result in a journal behind the checkpoint is applied (got " + games + " games)");
+            check(thirdStore.getLastAppliedResultSeq() == 42, "the sequence continues after the checkpoint (at "
+                    + thirdStore.getLastAppliedResultSeq() + ")");
+            fresh.close();
+            thirdStore.close();
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("ResultJournalTest passed");
+    }
+
+    private static boolean failsWithin(CompletableFuture<Void> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the player's games once there are at least {@code expected}, or after five seconds
+     */
+    private static int waitForGames(PlayerRepository store, String username, int expected) throws InterruptedException {
+        for (int i = 0; i < 50 && gamesOf(store, username) < expected; i++) {
+            Thread.sleep(100);
+        }
+        Thread.sleep(500);   // Long enough for a duplicate replay to show up
+        return gamesOf(store, username);
+    }
+
+    private static int gamesOf(PlayerRepository store, String username) {
+        return store.getAllPlayers().stream()
+                .filter(player -> player.username().equals(username))
+                .mapToInt(player -> player.gamesPlayed())
+                .findFirst().orElse(0);
+    }
+
+    private static void check(boolean condition, String description) {
+        System.out.println((condition ? "ok      " : "FAILED  ") + description);
+        if (!condition) failures++;
+    }
+}